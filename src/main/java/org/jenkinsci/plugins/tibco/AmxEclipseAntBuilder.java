@@ -28,7 +28,9 @@ import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Proc;
 import hudson.Util;
+import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
@@ -42,13 +44,39 @@ import hudson.util.ListBoxModel;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import org.apache.commons.io.output.CountingOutputStream;
+
+import org.jenkinsci.plugins.tibco.axmeclipseant.AntBatch;
+import org.jenkinsci.plugins.tibco.axmeclipseant.TargetTimingAction;
+import org.jenkinsci.plugins.tibco.axmeclipseant.TargetTimingProjectAction;
 import org.jenkinsci.plugins.tibco.axmeclipseant.TibcoConsoleAnnotator;
+import org.jenkinsci.plugins.tibco.cache.BuildOutputCache;
+import org.jenkinsci.plugins.tibco.console.ProblemReportAction;
+import org.jenkinsci.plugins.tibco.cache.InputFingerprint;
+import org.jenkinsci.plugins.tibco.installation.TibcoExecRegistry;
+import org.jenkinsci.plugins.tibco.installation.TibcoExecVersion;
 import org.jenkinsci.plugins.tibco.installation.TibcoInstallation;
+import org.jenkinsci.plugins.tibco.installation.TibcoResolution;
+import org.jenkinsci.plugins.tibco.jvm.GcLogSummary;
+import org.jenkinsci.plugins.tibco.jvm.GcReportAction;
+import org.jenkinsci.plugins.tibco.launch.OsgiConfigurationArea;
+import org.jenkinsci.plugins.tibco.launch.ProcessSampler;
+import org.jenkinsci.plugins.tibco.launch.ProcessSamplesAction;
+import org.jenkinsci.plugins.tibco.launch.ReducedLogLaunch;
+import org.jenkinsci.plugins.tibco.metrics.TibcoMetrics;
+import org.jenkinsci.plugins.tibco.tra.TraCache;
+import org.jenkinsci.plugins.tibco.tra.TraFile;
+import org.jenkinsci.plugins.tibco.tra.TraOverlay;
+import org.jenkinsci.plugins.tibco.workspace.BusinessStudioWorkspacePool;
+import org.jenkinsci.plugins.tibco.workspace.WorkspaceSnapshot;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 /**
@@ -119,19 +147,88 @@ public class AmxEclipseAntBuilder extends Builder {
 	 * Optional path to custom workspace to be passed to amx_eclispe_ant.
 	 */
 	private final String businessStudioWs;
+	/**
+	 * Optional amx_eclipse_ant version to use among the ones installed in the
+	 * {@link TibcoInstallation}. Null means the newest one.
+	 */
+	private final String execVersion;
+	/**
+	 * Optional TRA properties overriding the ones of the TRA file, like heap
+	 * settings. Follows TRA syntax.
+	 */
+	private final String traOverrides;
+	/**
+	 * Keeps a persistent OSGi configuration area per node, executable and
+	 * workspace, to speed up the Eclipse startup.
+	 */
+	private final boolean reuseOsgiConfiguration;
+	/**
+	 * Optional path, relative to the workspace, of the archive produced by the
+	 * build. When set, the archive is shared through the
+	 * {@link BuildOutputCache}.
+	 */
+	private final String outputArchive;
+	/**
+	 * Leases a pooled, already initialized workspace when no
+	 * {@link #businessStudioWs} is given.
+	 */
+	private final boolean useWorkspacePool;
+	/**
+	 * Snapshots the workspace <tt>.metadata</tt> after the first successful
+	 * build and restores it into later builds starting without one.
+	 */
+	private final boolean snapshotWorkspace;
+	/**
+	 * Build files, with their targets and properties, run in one launch
+	 * instead of {@link #buildFile} and {@link #targets}. See {@link AntBatch}.
+	 */
+	private final String batch;
+	/**
+	 * Writes a GC log of the launched JVM and reports it on the build.
+	 */
+	private final boolean logGc;
+	/**
+	 * Runs with the maximum heap recommended by the GC report of the last
+	 * build.
+	 */
+	private final boolean autoHeap;
+	/**
+	 * Seconds between two resource samples of the launched processes, 0 not
+	 * to sample.
+	 */
+	private final int sampleInterval;
+	/**
+	 * Lines of output kept for the console of a failed step when the console
+	 * is reduced, 0 for the whole output in the console.
+	 */
+	private final int reducedLogTail;
 
 	// Fields in config.jelly must match the parameter names in the
 	// "DataBoundConstructor"
 	@DataBoundConstructor
 	public AmxEclipseAntBuilder(String targets, String name, String antOpts,
 			String buildFile, String properties, String amxEclipseAntTra,
-			String businessStudioWs) {
+			String businessStudioWs, String execVersion, String traOverrides,
+			boolean reuseOsgiConfiguration, String outputArchive, boolean useWorkspacePool,
+			boolean snapshotWorkspace, String batch, boolean logGc, boolean autoHeap,
+			int sampleInterval, int reducedLogTail) {
 		this.targets = Util.fixEmptyAndTrim(targets);
 		this.antOpts = Util.fixEmptyAndTrim(antOpts);
 		this.buildFile = Util.fixEmptyAndTrim(buildFile);
 		this.properties = Util.fixEmptyAndTrim(properties);
 		this.amxEclipseAntTra = Util.fixEmptyAndTrim(amxEclipseAntTra);
 		this.businessStudioWs = Util.fixEmptyAndTrim(businessStudioWs);
+		this.execVersion = Util.fixEmptyAndTrim(execVersion);
+		this.traOverrides = Util.fixEmptyAndTrim(traOverrides);
+		this.reuseOsgiConfiguration = reuseOsgiConfiguration;
+		this.outputArchive = Util.fixEmptyAndTrim(outputArchive);
+		this.useWorkspacePool = useWorkspacePool;
+		this.snapshotWorkspace = snapshotWorkspace;
+		this.batch = Util.fixEmptyAndTrim(batch);
+		this.logGc = logGc;
+		this.autoHeap = autoHeap;
+		this.sampleInterval = sampleInterval;
+		this.reducedLogTail = reducedLogTail;
 		this.name = name;
 	}
 
@@ -158,6 +255,50 @@ public class AmxEclipseAntBuilder extends Builder {
 		return targets;
 	}
 
+	public String getExecVersion() {
+		return execVersion;
+	}
+
+	public String getTraOverrides() {
+		return traOverrides;
+	}
+
+	public int getReducedLogTail() {
+		return reducedLogTail;
+	}
+
+	public int getSampleInterval() {
+		return sampleInterval;
+	}
+
+	public boolean isLogGc() {
+		return logGc;
+	}
+
+	public boolean isAutoHeap() {
+		return autoHeap;
+	}
+
+	public String getBatch() {
+		return batch;
+	}
+
+	public boolean isSnapshotWorkspace() {
+		return snapshotWorkspace;
+	}
+
+	public boolean isUseWorkspacePool() {
+		return useWorkspacePool;
+	}
+
+	public String getOutputArchive() {
+		return outputArchive;
+	}
+
+	public boolean isReuseOsgiConfiguration() {
+		return reuseOsgiConfiguration;
+	}
+
 	public String getAmxEclipseAntTra() {
 		return amxEclipseAntTra;
 	}
@@ -183,25 +324,40 @@ public class AmxEclipseAntBuilder extends Builder {
 
 	@Override
     public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        BusinessStudioWorkspacePool.Lease lease = null;
+        if(businessStudioWs==null && useWorkspacePool) {
+            lease = BusinessStudioWorkspacePool.of(Computer.currentComputer().getNode(), getName() + '|' + execVersion).lease(build.getProject().getFullName(), listener);
+            listener.getLogger().println(Messages.LeasedWorkspace(lease.getWorkspace()));
+        }
+        FilePath batchDir = null;
+        if(batch!=null)
+            batchDir = build.getWorkspace().createTempDir("tibco-batch", "");
+        try {
+            return perform(build, launcher, listener, lease, batchDir);
+        } finally {
+            if(lease!=null)
+                lease.release();
+            if(batchDir!=null)
+                batchDir.deleteRecursive();
+        }
+    }
+
+    private boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener, BusinessStudioWorkspacePool.Lease lease, FilePath batchDir) throws InterruptedException, IOException {
         ArgumentListBuilder args = new ArgumentListBuilder();
 
         EnvVars env = build.getEnvironment(listener);
         env.overrideAll(build.getBuildVariables());
         
         TibcoInstallation ti = getTibcoInstallation();
-        
-        String exe=null;
         if(ti==null) {
-                listener.fatalError(Messages.ExecutableNotFound(ti.getName()));
-        } else {
-            ti = ti.forNode(Computer.currentComputer().getNode(), listener);
-            ti = ti.forEnvironment(env);
-            exe = ti.getAmxEclipseAntExecutable(launcher);
-            if (exe==null) {
-                listener.fatalError(Messages.ExecutableNotFound(ti.getName()));
-                return false;
-            }
-            args.add(exe);
+            listener.fatalError(Messages.ExecutableNotFound(getName()));
+            if(getDescriptor().getTibcoInstallations().length==0)
+                // looks like the user didn't configure any Tibco installation
+                listener.getLogger().println(Messages.GlobalConfigNeeded());
+            else
+                // There are Tibco installations configured but the project didn't pick one
+                listener.getLogger().println(Messages.ProjectConfigNeeded());
+            return false;
         }
 
         VariableResolver<String> vr = new VariableResolver.ByMap<String>(env);
@@ -209,46 +365,92 @@ public class AmxEclipseAntBuilder extends Builder {
         String buildFile = env.expand(this.buildFile);
         String targets = env.expand(this.targets);
         String amxEclipseAntTraProp= env.expand(this.amxEclipseAntTra);
-        
-        FilePath buildFilePath = buildFilePath(build.getModuleRoot(), buildFile, targets);
-
-        if(!buildFilePath.exists()) {
-
-            // first check if this appears to be a valid relative path from workspace root
-            FilePath buildFilePath2 = buildFilePath(build.getWorkspace(), buildFile, targets);
-            if(buildFilePath2.exists()) {
-                // This must be what the user meant. Let it continue.
-                buildFilePath = buildFilePath2;
-            } else {
-                // neither file exists. So this now really does look like an error.
-                listener.fatalError(Messages.UnableToFindBuildFile(buildFilePath));//("Unable to find build script at "+buildFilePath);
-                return false;
-            }
+
+        // executable, default TRA and build file are all resolved in one call to the node.
+        // the build file is first looked up from the module root, then from the workspace root
+        String buildFileName = buildFileName(buildFile, targets);
+        AntBatch antBatch = null;
+        if(batchDir!=null) {
+            // the wrapper build script takes the place of the build file
+            antBatch = AntBatch.parse(env.expand(batch));
+            FilePath script = batchDir.child("build.xml");
+            script.write(antBatch.toBuildScript(build.getModuleRoot().getRemote()), "UTF-8");
+            batchDir.child("results").mkdirs();
+            buildFileName = script.getRemote();
         }
+        ti = ti.forNode(Computer.currentComputer().getNode(), listener);
+        ti = ti.forEnvironment(env);
+        TibcoMetrics.Series metrics = TibcoMetrics.get().series(ti.getName(), build, TibcoExecRegistry.AMX_ECLIPSE_ANT);
+        long resolveStart = System.nanoTime();
+        TibcoResolution resolution = ti.resolve(launcher, TibcoExecRegistry.AMX_ECLIPSE_ANT, execVersion,
+                buildFileName, build.getModuleRoot().getRemote(), build.getWorkspace().getRemote());
+        metrics.resolved(resolveStart);
+        String exe = resolution.getExecutable();
+        if (exe==null) {
+            listener.fatalError(Messages.ExecutableNotFound(ti.getName()));
+            return false;
+        }
+        args.add(exe);
 
+        if(resolution.getBuildFile()==null) {
+            // neither file exists. So this now really does look like an error.
+            listener.fatalError(Messages.UnableToFindBuildFile(build.getModuleRoot().child(buildFileName)));//("Unable to find build script at "+buildFilePath);
+            return false;
+        }
+        FilePath buildFilePath = new FilePath(launcher.getChannel(), resolution.getBuildFile());
+
+        String step = antBatch!=null ? "batch" : buildFileName;
+        String tra = amxEclipseAntTraProp!=null ? amxEclipseAntTraProp : resolution.getTraFile();
+        FilePath gcLog = null;
+        long heap = -1;
+        long configuredHeap = -1;
+        boolean heapApplied = false;
+        // the overlay name and the GC log path are node specific, the cache key uses the
+        // base TRA and the configured overrides only
+        FilePath baseTra = build.getWorkspace().child(tra);
+        Map<String,String> traInputs = TraOverlay.parse(env.expand(traOverrides));
+        if(traOverrides!=null || logGc) {
+            Map<String,String> overrides = new LinkedHashMap<String,String>(traInputs);
+            if(logGc) {
+                // the log path is stable per workspace, so the overlay is reused by the next builds
+                TraFile base = TraCache.read(baseTra);
+                gcLog = build.getWorkspace().child(GcLogSummary.LOG_NAME);
+                gcLog.delete();
+                GcLogSummary.addJvmOptions(base, overrides, gcLog.getRemote());
+                heap = overrides.containsKey(TraFile.HEAP_MAX) ? TraFile.toMegabytes(overrides.get(TraFile.HEAP_MAX)) : base.getHeapMaxMegabytes();
+                configuredHeap = heap;
+                long recommended = autoHeap ? GcReportAction.getRecommendedHeap(build, step) : -1;
+                if(recommended>0) {
+                    overrides.put(TraFile.HEAP_MAX, recommended + "M");
+                    String initial = overrides.containsKey(TraFile.HEAP_INITIAL) ? overrides.get(TraFile.HEAP_INITIAL) : base.getHeapInitial();
+                    if(TraFile.toMegabytes(initial)>recommended)
+                        overrides.put(TraFile.HEAP_INITIAL, recommended + "M");
+                    heap = recommended;
+                    heapApplied = true;
+                    listener.getLogger().println(Messages.HeapFromPreviousBuild(recommended));
+                }
+            }
+            tra = TraOverlay.overlay(Computer.currentComputer().getNode(), baseTra, overrides);
+        }
+        args.add("--propFile", tra);
         
         
-        
-        if(amxEclipseAntTraProp!=null) {
-	        args.add("--propFile", amxEclipseAntTraProp);
-	    }else{
-	    	
-	    	if(!launcher.isUnix()){
-	    		args.add("--propFile",exe.substring(0,exe.indexOf(".exe")).concat(".tra"));
-	    	}
-	    	else{
-	    		args.add("--propFile",exe.concat(".tra"));
-	    	}
-	    }
-        
-        
-        if(buildFile!=null) {
+        if(buildFile!=null || antBatch!=null) {
             args.add("-file", buildFilePath.getName());
         }
 
+        if(workspace==null && lease!=null) {
+            workspace = lease.getWorkspace().getRemote();
+        }
+
         if(workspace!=null) {
                 args.add("-data",workspace);
         }
+
+        if(reuseOsgiConfiguration) {
+            args.add("-configuration", OsgiConfigurationArea.lease(Computer.currentComputer().getNode(), resolution.getHome(), exe,
+                    workspace!=null ? build.getWorkspace().child(workspace) : build.getWorkspace()));
+        }
         
         Set<String> sensitiveVars = build.getSensitiveBuildVariables();
 
@@ -256,7 +458,11 @@ public class AmxEclipseAntBuilder extends Builder {
 
         args.addKeyValuePairsFromPropertyString("-D",properties,vr,sensitiveVars);
         
-        if(targets!=null)
+        if(antBatch!=null) {
+            args.add("-D" + AntBatch.RESULTS_PROPERTY + "=" + batchDir.child("results").getRemote());
+            args.add("-keep-going");
+            args.add(antBatch.getTargets());
+        } else if(targets!=null)
                 args.addTokenized(targets.replaceAll("[\t\r\n]+"," "));
 
         if(ti!=null)
@@ -275,44 +481,124 @@ public class AmxEclipseAntBuilder extends Builder {
             args = new ArgumentListBuilder(newArgs.toArray(new String[newArgs.size()]));
         }
 
-        long startTime = System.currentTimeMillis();
+        // the build file directory, TRA, version and the expanded options and build variables
+        // identify the archive in the build output cache. The Eclipse workspace and the files
+        // this plugin writes next to the build file change on every run and are left out
+        BuildOutputCache cache = BuildOutputCache.get();
+        String fingerprint = null;
+        FilePath outputPath = null;
+        if(cache!=null && outputArchive!=null && antBatch==null) {
+            outputPath = build.getWorkspace().child(env.expand(outputArchive));
+            fingerprint = new InputFingerprint(buildFilePath.getParent(), outputPath)
+                    .exclude(workspace!=null ? build.getWorkspace().child(workspace) : null)
+                    .exclude(build.getWorkspace().child(GcLogSummary.LOG_NAME))
+                    .exclude(build.getWorkspace().child(ReducedLogLaunch.LOG_DIR))
+                    .file("tra", baseTra.getRemote())
+                    .values(traInputs)
+                    .value(resolution.getVersion())
+                    .value(buildFilePath.getName())
+                    .value(targets)
+                    .value(Util.replaceMacro(this.properties, vr))
+                    .value(env.get("ANT_OPTS"))
+                    .values(build.getBuildVariables())
+                    .compute(launcher.getChannel());
+            if(cache.fetchOrMiss("daa-" + fingerprint, outputPath, listener)) {
+                listener.getLogger().println(Messages.RestoredFromCache(outputPath));
+                return true;
+            }
+        }
+
+        WorkspaceSnapshot snapshot = null;
+        FilePath workspacePath = null;
+        if(snapshotWorkspace && workspace!=null) {
+            workspacePath = build.getWorkspace().child(workspace);
+            snapshot = WorkspaceSnapshot.of(Computer.currentComputer().getNode(), build, workspace, resolution.getVersion());
+            if(snapshot.restore(workspacePath, launcher, listener))
+                listener.getLogger().println(Messages.RestoredWorkspaceSnapshot(workspacePath));
+        }
+
         try {
-            TibcoConsoleAnnotator aca = new TibcoConsoleAnnotator(listener.getLogger(),build.getCharset());
-            int r;
+            TibcoConsoleAnnotator aca = new TibcoConsoleAnnotator(listener.getLogger(),build.getCharset(),step);
+            CountingOutputStream out = new CountingOutputStream(aca);
+            int r = -1;
+            EnvVars launchEnv = new EnvVars(env);
+            ProcessSampler sampler = sampleInterval>0 ? ProcessSampler.start(launcher.getChannel(), launchEnv, sampleInterval) : null;
+            long launchStart = System.nanoTime();
+            long launchEnd = -1;
             try {
-                r = launcher.launch().cmds(args).envs(env).stdout(aca).pwd(buildFilePath.getParent()).join();
+                if(reducedLogTail>0) {
+                    r = ReducedLogLaunch.run(build, launcher, args, launchEnv, buildFilePath.getParent().getRemote(), out, step, reducedLogTail, metrics, launchStart, listener);
+                } else {
+                    Proc proc = launcher.launch().cmds(args).envs(launchEnv).stdout(out).pwd(buildFilePath.getParent()).start();
+                    metrics.launched(launchStart);
+                    r = proc.join();
+                }
             } finally {
+                launchEnd = System.nanoTime();
                 aca.forceEol();
+                metrics.finished(launchStart, r, out.getByteCount());
+                recordTimings(build, aca.getTimings());
+                ProblemReportAction.add(build, aca.getProblems());
+                if(sampler!=null)
+                    ProcessSamplesAction.add(build, step, sampler.stop());
+            }
+            if(gcLog!=null) {
+                GcLogSummary gc = GcLogSummary.read(gcLog);
+                if(gc!=null && !gc.isEmpty()) {
+                    gc.setRunSeconds((launchEnd - launchStart) / 1e9);
+                    GcReportAction.add(build, new GcReportAction.Entry(step, gc, heap, configuredHeap, heapApplied));
+                }
+            }
+            if(antBatch!=null) {
+                List<AntBatch.Entry> failed = antBatch.getFailed(batchDir.child("results"));
+                for(AntBatch.Entry e : antBatch.getEntries())
+                    listener.getLogger().println(failed.contains(e) ? Messages.BatchEntryFailed(e) : Messages.BatchEntrySucceeded(e));
+                if(!failed.isEmpty() && r==0)
+                    r = 1;
             }
+            if(r==0 && fingerprint!=null && outputPath.exists())
+                cache.storeOrWarn("daa-" + fingerprint, outputPath, listener);
+            if(r==0 && snapshot!=null && snapshot.save(workspacePath, launcher, listener))
+                listener.getLogger().println(Messages.SavedWorkspaceSnapshot(workspacePath));
             return r==0;
         } catch (IOException e) {
             Util.displayIOException(e,listener);
 
-            String errorMessage = Messages.ExecFailed();
-            if(ti==null && (System.currentTimeMillis()-startTime)<1000) {
-                if(getDescriptor().getTibcoInstallations()==null)
-                    // looks like the user didn't configure any Tibco installation
-                    errorMessage += Messages.GlobalConfigNeeded();
-                else
-                    // There are Tibco installations configured but the project didn't pick it
-                    errorMessage += Messages.ProjectConfigNeeded();
-            }
-            e.printStackTrace( listener.fatalError(errorMessage) );
+            e.printStackTrace( listener.fatalError(Messages.ExecFailed()) );
             return false;
         }
     }
 
-    private static FilePath buildFilePath(FilePath base, String buildFile, String targets) {
-        if(buildFile!=null)     return base.child(buildFile);
+    private static void recordTimings(AbstractBuild<?,?> build, List<TargetTimingAction.Timing> timings) {
+        if(timings.isEmpty())
+            return;
+        synchronized(build) {
+            TargetTimingAction a = build.getAction(TargetTimingAction.class);
+            if(a==null) {
+                a = new TargetTimingAction();
+                build.addAction(a);
+            }
+            a.addAll(timings);
+        }
+    }
+
+    @Override
+    public Action getProjectAction(AbstractProject<?,?> project) {
+        return new TargetTimingProjectAction(project);
+    }
+
+    private static String buildFileName(String buildFile, String targets) {
+        if(buildFile!=null)     return buildFile;
+        if(targets==null)       return "build.xml";
         // some users specify the -f option in the targets field, so take that into account as well.
         // see 
         String[] tokens = Util.tokenize(targets);
         for (int i = 0; i<tokens.length-1; i++) {
             String a = tokens[i];
             if(a.equals("-f") || a.equals("-file") || a.equals("-buildfile"))
-                return base.child(tokens[i+1]);
+                return tokens[i+1];
         }
-        return base.child("build.xml");
+        return "build.xml";
     }
 
 	// Overridden for better type safety.
@@ -360,6 +646,18 @@ public class AmxEclipseAntBuilder extends Builder {
 			}
 			return items;
 		}
+
+		public ListBoxModel doFillExecVersionItems(@QueryParameter String name) {
+			ListBoxModel items = new ListBoxModel();
+			items.add("Newest", "");
+			for (TibcoInstallation ti : getTibcoInstallations()) {
+				if (ti.getName().equals(name)) {
+					for (TibcoExecVersion v : ti.getExecVersions(TibcoExecRegistry.AMX_ECLIPSE_ANT))
+						items.add(v.getDescription(), v.getExecVersion());
+				}
+			}
+			return items;
+		}
 		
 
 		/**
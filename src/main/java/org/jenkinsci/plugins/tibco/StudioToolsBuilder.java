@@ -26,26 +26,58 @@ package org.jenkinsci.plugins.tibco;
 import hudson.CopyOnWrite;
 import hudson.EnvVars;
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Proc;
 import hudson.Util;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Computer;
+import hudson.model.StreamBuildListener;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.tools.ToolInstallation;
 import hudson.util.ArgumentListBuilder;
-import hudson.util.VariableResolver;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.ListBoxModel;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import org.jenkinsci.plugins.tibco.cache.BuildOutputCache;
+import org.jenkinsci.plugins.tibco.console.ProblemReportAction;
+import org.jenkinsci.plugins.tibco.cache.IncrementalBuildState;
+import org.jenkinsci.plugins.tibco.cache.InputFingerprint;
+import org.jenkinsci.plugins.tibco.installation.TibcoExecRegistry;
+import org.jenkinsci.plugins.tibco.installation.TibcoExecVersion;
 import org.jenkinsci.plugins.tibco.installation.TibcoInstallation;
+import org.jenkinsci.plugins.tibco.installation.TibcoResolution;
+import org.jenkinsci.plugins.tibco.launch.NodeCapacity;
+import org.jenkinsci.plugins.tibco.launch.OsgiConfigurationArea;
+import org.jenkinsci.plugins.tibco.launch.ProcessSampler;
+import org.jenkinsci.plugins.tibco.launch.ProcessSamplesAction;
+import org.jenkinsci.plugins.tibco.launch.ReducedLogLaunch;
+import org.jenkinsci.plugins.tibco.metrics.TibcoMetrics;
 import org.jenkinsci.plugins.tibco.studiotools.StudioToolsConsoleAnnotator;
+import org.jenkinsci.plugins.tibco.tra.TraCache;
+import org.jenkinsci.plugins.tibco.tra.TraOverlay;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
 
 /**
  * @author federicopastore
@@ -54,6 +86,11 @@ import org.kohsuke.stapler.DataBoundConstructor;
 public class StudioToolsBuilder extends Builder {
 
 	
+	/**
+	 * Heap assumed for a studio-tools process when the TRA doesn't tell, in megabytes.
+	 */
+	private static final long DEFAULT_HEAP = 1024;
+
 	private final String name;
 	private final String operation;
 	private final String projectDir;
@@ -64,6 +101,43 @@ public class StudioToolsBuilder extends Builder {
 	
 	private final String TRAPropertyFile;
 	private final boolean overwriteOutput;
+	/**
+	 * Optional studio-tools version to use, null means the newest one.
+	 */
+	private final String execVersion;
+	/**
+	 * Optional TRA properties overriding the ones of the TRA file, in TRA syntax.
+	 */
+	private final String traOverrides;
+	/**
+	 * Keeps a persistent OSGi configuration area per node, executable and
+	 * workspace, to speed up the Eclipse startup.
+	 */
+	private final boolean reuseOsgiConfiguration;
+	/**
+	 * Skips buildEar and restores the last archive when no input changed.
+	 */
+	private final boolean skipUnchanged;
+	/**
+	 * Optional additional projects, one <tt>projectDir=outputArchiveFile</tt>
+	 * per line, built side by side with the main one.
+	 */
+	private final String projects;
+	/**
+	 * Upper bound of the projects built at once, 0 to size it on the node
+	 * cores and memory only.
+	 */
+	private final int maxParallel;
+	/**
+	 * Seconds between two resource samples of the launched processes, 0 not
+	 * to sample.
+	 */
+	private final int sampleInterval;
+	/**
+	 * Lines of output kept for the console of a failed project when the
+	 * console is reduced, 0 for the whole output in the console.
+	 */
+	private final int reducedLogTail;
 
 
 
@@ -72,7 +146,7 @@ public class StudioToolsBuilder extends Builder {
 
 
 	@DataBoundConstructor
-	public StudioToolsBuilder(String name, String operation, String projectDir,String outputArchiveFile, String extendedClassPath, boolean overwriteOutput, String TRAPropertyFIle){
+	public StudioToolsBuilder(String name, String operation, String projectDir,String outputArchiveFile, String extendedClassPath, boolean overwriteOutput, String TRAPropertyFIle, String execVersion, String traOverrides, boolean reuseOsgiConfiguration, boolean skipUnchanged, String projects, int maxParallel, int sampleInterval, int reducedLogTail){
 		this.name=Util.fixEmptyAndTrim(name);
 		this.operation=Util.fixEmptyAndTrim(operation);
 		this.projectDir=Util.fixEmptyAndTrim(projectDir);
@@ -80,6 +154,14 @@ public class StudioToolsBuilder extends Builder {
 		this.extendedClassPath=Util.fixEmptyAndTrim(extendedClassPath);
 		this.overwriteOutput=overwriteOutput;
 		this.TRAPropertyFile=Util.fixEmptyAndTrim(TRAPropertyFIle);
+		this.execVersion=Util.fixEmptyAndTrim(execVersion);
+		this.traOverrides=Util.fixEmptyAndTrim(traOverrides);
+		this.reuseOsgiConfiguration=reuseOsgiConfiguration;
+		this.skipUnchanged=skipUnchanged;
+		this.projects=Util.fixEmptyAndTrim(projects);
+		this.maxParallel=maxParallel;
+		this.sampleInterval=sampleInterval;
+		this.reducedLogTail=reducedLogTail;
 
 	}
 	
@@ -109,6 +191,54 @@ public class StudioToolsBuilder extends Builder {
 
 
 
+	public String getProjects() {
+		return projects;
+	}
+
+
+
+	public int getMaxParallel() {
+		return maxParallel;
+	}
+
+
+
+	public int getSampleInterval() {
+		return sampleInterval;
+	}
+
+
+
+	public int getReducedLogTail() {
+		return reducedLogTail;
+	}
+
+
+
+	public boolean isSkipUnchanged() {
+		return skipUnchanged;
+	}
+
+
+
+	public boolean isReuseOsgiConfiguration() {
+		return reuseOsgiConfiguration;
+	}
+
+
+
+	public String getTraOverrides() {
+		return traOverrides;
+	}
+
+
+
+	public String getExecVersion() {
+		return execVersion;
+	}
+
+
+
 	public String getOperation() {
 		return operation;
 	}
@@ -142,33 +272,153 @@ public class StudioToolsBuilder extends Builder {
 	
 	@Override
     public boolean perform(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
-        ArgumentListBuilder args = new ArgumentListBuilder();
-
         EnvVars env = build.getEnvironment(listener);
         env.overrideAll(build.getBuildVariables());
         
         TibcoInstallation ti = getTibcoInstallation();
-        String exe=null;
         if(ti==null) {
-                listener.fatalError("ExecutableNotFound");//Messages.TibcoAnt_ExecutableNotFound(tai.getName()));
-        } else {
-            ti = ti.forNode(Computer.currentComputer().getNode(), listener);
-            ti = ti.forEnvironment(env);
-             exe = ti.getStudioToolsExecutable(launcher);
-            if (exe==null) {
-                listener.fatalError("ExecutableNotFound");//Messages.TibcoAnt_ExecutableNotFound(tai.getName()));
-                return false;
-            }
-            args.add(exe);
+            listener.fatalError(Messages.ExecutableNotFound(getName()));
+            if(getDescriptor().getTibcoInstallations().length==0)
+                // looks like the user didn't configure any Tibco installation
+                listener.getLogger().println(Messages.GlobalConfigNeeded());
+            else
+                // There are Tibco installations configured but the project didn't pick one
+                listener.getLogger().println(Messages.ProjectConfigNeeded());
+            return false;
         }
-
-        VariableResolver<String> vr = new VariableResolver.ByMap<String>(env);
+        ti = ti.forNode(Computer.currentComputer().getNode(), listener);
+        ti = ti.forEnvironment(env);
+        // executable and default TRA are resolved in one call to the node
         String operation = env.expand(this.operation);
-        String projectDir = env.expand(this.projectDir);
-        
+        long resolveStart = System.nanoTime();
+        TibcoResolution resolution = ti.resolve(launcher, TibcoExecRegistry.STUDIO_TOOLS, execVersion, null);
+        TibcoMetrics.get().series(getName(), build, operation).resolved(resolveStart);
+        String exe = resolution.getExecutable();
+        if (exe==null) {
+            listener.fatalError("ExecutableNotFound");//Messages.TibcoAnt_ExecutableNotFound(tai.getName()));
+            return false;
+        }
+
+	    String tra = TRAPropertyFile!=null ? TRAPropertyFile : resolution.getTraFile();
+	    // the overlay name and path are node specific, the cache key uses the base TRA and the overrides
+	    FilePath baseTra = build.getWorkspace().child(tra);
+	    Map<String,String> traInputs = TraOverlay.parse(env.expand(traOverrides));
+	    if(traOverrides!=null) {
+	        tra = TraOverlay.overlay(Computer.currentComputer().getNode(), baseTra, traInputs);
+	    }
+
+	    List<String[]> projectList = getProjectList(env);
+	    if(projectList.size()<=1) {
+	        String[] project = projectList.isEmpty() ? new String[] {null, env.expand(outputArchiveFile)} : projectList.get(0);
+	        return buildProject(build, launcher, listener, env, resolution, operation, tra, baseTra, traInputs, project[0], project[1]);
+	    }
+	    return buildProjects(build, launcher, listener, env, resolution, operation, tra, baseTra, traInputs, projectList);
+    }
+
+	/**
+	 * Lists the projectDir/outputArchiveFile pairs to build: the main one
+	 * followed by the additional ones.
+	 */
+	private List<String[]> getProjectList(EnvVars env) {
+	    List<String[]> list = new ArrayList<String[]>();
+	    if(projectDir!=null)
+	        list.add(new String[] {env.expand(projectDir), env.expand(outputArchiveFile)});
+	    if(projects!=null) {
+	        for(String line : env.expand(projects).split("[\r\n]+")) {
+	            line = line.trim();
+	            if(line.length()==0 || line.startsWith("#"))
+	                continue;
+	            int eq = line.indexOf('=');
+	            if(eq<0)
+	                list.add(new String[] {line, null});
+	            else
+	                list.add(new String[] {line.substring(0, eq).trim(), Util.fixEmptyAndTrim(line.substring(eq+1))});
+	        }
+	    }
+	    return list;
+	}
+
+	/**
+	 * Builds several projects side by side on the node. Each project logs to its
+	 * own file, copied to the build console once the project is done.
+	 */
+	private boolean buildProjects(final AbstractBuild<?,?> build, final Launcher launcher, BuildListener listener, final EnvVars env,
+	        final TibcoResolution resolution, final String operation, final String tra, final FilePath baseTra, final Map<String,String> traInputs,
+	        List<String[]> projectList) throws IOException, InterruptedException {
+	    long heap = TraCache.read(build.getWorkspace().child(tra)).getHeapMaxMegabytes();
+	    int parallelism = NodeCapacity.parallelism(launcher.getChannel(), heap>0 ? heap : DEFAULT_HEAP);
+	    if(maxParallel>0)
+	        parallelism = Math.min(parallelism, maxParallel);
+	    listener.getLogger().println(Messages.BuildingProjects(projectList.size(), parallelism));
+
+	    ExecutorService pool = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory());
+	    CompletionService<String[]> completion = new ExecutorCompletionService<String[]>(pool);
+	    // the project logs still around when a project fails unexpectedly are deleted at the end
+	    List<File> logs = new ArrayList<File>();
+	    try {
+	        for(final String[] project : projectList) {
+	            final File log = File.createTempFile("studio-tools", ".log");
+	            logs.add(log);
+	            completion.submit(new Callable<String[]>() {
+	                public String[] call() throws Exception {
+	                    StreamBuildListener projectListener = new StreamBuildListener(new FileOutputStream(log), build.getCharset());
+	                    boolean ok = false;
+	                    try {
+	                        ok = buildProject(build, launcher, projectListener, env, resolution, operation, tra, baseTra, traInputs, project[0], project[1]);
+	                    } catch (IOException e) {
+	                        e.printStackTrace(projectListener.error(Messages.ExecFailed()));
+	                    } finally {
+	                        projectListener.getLogger().close();
+	                    }
+	                    return new String[] {project[0], log.getPath(), String.valueOf(ok)};
+	                }
+	            });
+	        }
+
+	        List<String> failed = new ArrayList<String>();
+	        for(int i=0; i<projectList.size(); i++) {
+	            String[] done;
+	            try {
+	                done = completion.take().get();
+	            } catch (ExecutionException e) {
+	                throw (IOException) new IOException(Messages.ExecFailed()).initCause(e.getCause());
+	            }
+	            File log = new File(done[1]);
+	            listener.getLogger().println(Messages.ProjectLog(done[0]));
+	            FileInputStream in = new FileInputStream(log);
+	            try {
+	                IOUtils.copy(in, listener.getLogger());
+	            } finally {
+	                in.close();
+	                log.delete();
+	            }
+	            if(!Boolean.parseBoolean(done[2]))
+	                failed.add(done[0]);
+	        }
+	        if(!failed.isEmpty()) {
+	            listener.error(Messages.ProjectsFailed(failed.size(), projectList.size(), failed));
+	            return false;
+	        }
+	        return true;
+	    } finally {
+	        pool.shutdownNow();
+	        for(File log : logs) {
+	            // a project still running keeps its log open, which Windows doesn't delete
+	            if(log.exists() && !log.delete())
+	                log.deleteOnExit();
+	        }
+	    }
+	}
+
+	private boolean buildProject(AbstractBuild<?,?> build, Launcher launcher, BuildListener listener, EnvVars env,
+	        TibcoResolution resolution, String operation, String tra, FilePath baseTra, Map<String,String> traInputs,
+	        String projectDir, String outputArchiveFile) throws IOException, InterruptedException {
+        ArgumentListBuilder args = new ArgumentListBuilder();
+        String exe = resolution.getExecutable();
+        args.add(exe);
         
         if(operation!=null) {
-            args.add("-core",this.operation);
+            args.add("-core",operation);
 	    }
 	    
 	    if(projectDir!=null) {
@@ -178,24 +428,19 @@ public class StudioToolsBuilder extends Builder {
 	    if(this.isOverwriteOutput()){
 	    	args.add("-x");
 	    }
-	    if(this.outputArchiveFile!=null){
-	    	args.add("-o", this.outputArchiveFile);
+	    if(outputArchiveFile!=null){
+	    	args.add("-o", outputArchiveFile);
 	    }
 	    
 	    if(this.extendedClassPath!=null){
 	    	args.add("-cp",this.extendedClassPath);
 	    }
 	    
-	    if(TRAPropertyFile!=null) {
-	        args.add("--propFile", TRAPropertyFile);
-	    }else{
-	    	
-	    	if(!launcher.isUnix()){
-	    		args.add("--propFile",exe.substring(0,exe.indexOf(".exe")).concat(".tra"));
-	    	}
-	    	else{
-	    		args.add("--propFile",exe.concat(".tra"));
-	    	}
+	    args.add("--propFile", tra);
+
+	    if(reuseOsgiConfiguration) {
+	        FilePath area = projectDir!=null ? build.getWorkspace().child(projectDir) : build.getWorkspace();
+	        args.add("-configuration", OsgiConfigurationArea.lease(build.getBuiltOn(), resolution.getHome(), exe, area));
 	    }
 	    
         
@@ -210,28 +455,69 @@ public class StudioToolsBuilder extends Builder {
             args = new ArgumentListBuilder(newArgs.toArray(new String[newArgs.size()]));
         }
 
-        long startTime = System.currentTimeMillis();
+        // fingerprint project, TRA, class path and version, and restore the last archive if none of them changed
+        String fingerprint = null;
+        IncrementalBuildState state = null;
+        BuildOutputCache cache = BuildOutputCache.get();
+        FilePath outputPath = null;
+        if((skipUnchanged || cache!=null) && "buildEar".equals(operation) && projectDir!=null && outputArchiveFile!=null) {
+            FilePath projectPath = build.getWorkspace().child(projectDir);
+            outputPath = projectPath.child(outputArchiveFile);
+            fingerprint = new InputFingerprint(projectPath, outputPath)
+                    .file("tra", baseTra.getRemote())
+                    .values(traInputs)
+                    .classPath(extendedClassPath)
+                    .value(resolution.getVersion())
+                    .value(operation)
+                    .value(outputArchiveFile)
+                    .value(String.valueOf(overwriteOutput))
+                    .compute(launcher.getChannel());
+            if(skipUnchanged) {
+                state = IncrementalBuildState.of(build.getBuiltOn(), build, outputPath);
+                if(state.restore(fingerprint, outputPath)) {
+                    listener.getLogger().println(Messages.InputsUnchanged(outputPath));
+                    return true;
+                }
+            }
+            if(cache!=null && cache.fetchOrMiss("ear-" + fingerprint, outputPath, listener)) {
+                listener.getLogger().println(Messages.RestoredFromCache(outputPath));
+                return true;
+            }
+        }
+
         try {
-            StudioToolsConsoleAnnotator sca = new StudioToolsConsoleAnnotator(listener.getLogger(),build.getCharset());
-            int r;
+            String step = projectDir!=null ? projectDir : String.valueOf(operation);
+            StudioToolsConsoleAnnotator sca = new StudioToolsConsoleAnnotator(listener.getLogger(),build.getCharset(),step);
+            TibcoMetrics.Series metrics = TibcoMetrics.get().series(getName(), build, operation);
+            CountingOutputStream out = new CountingOutputStream(sca);
+            int r = -1;
+            EnvVars launchEnv = new EnvVars(env);
+            ProcessSampler sampler = sampleInterval>0 ? ProcessSampler.start(launcher.getChannel(), launchEnv, sampleInterval) : null;
+            long launchStart = System.nanoTime();
             try {
-                r = launcher.launch().cmds(args).envs(env).stdout(sca).pwd(projectDir).join();
+                if(reducedLogTail>0) {
+                    r = ReducedLogLaunch.run(build, launcher, args, launchEnv, projectDir, out, step, reducedLogTail, metrics, launchStart, listener);
+                } else {
+                    Proc proc = launcher.launch().cmds(args).envs(launchEnv).stdout(out).pwd(projectDir).start();
+                    metrics.launched(launchStart);
+                    r = proc.join();
+                }
             } finally {
                 sca.forceEol();
+                metrics.finished(launchStart, r, out.getByteCount());
+                ProblemReportAction.add(build, sca.getProblems());
+                if(sampler!=null)
+                    ProcessSamplesAction.add(build, step, sampler.stop());
             }
+            if(r==0 && state!=null)
+                state.save(fingerprint, outputPath);
+            if(r==0 && cache!=null && fingerprint!=null && outputPath.exists())
+                cache.storeOrWarn("ear-" + fingerprint, outputPath, listener);
             return r==0;
         } catch (IOException e) {
             Util.displayIOException(e,listener);
 
-            String errorMessage = "StudioTools_ExecFailed";//Messages.TibcoAnt_ExecFailed();
-            if(ti==null && (System.currentTimeMillis()-startTime)<1000) {
-                if(getDescriptor().getTibcoInstallations()==null)
-                    errorMessage += "GlobalConfigNeeded";//Messages.TibcoAnt_GlobalConfigNeeded();
-                else
-                    // There are Ant installations configured but the project didn't pick it
-                    errorMessage += "ProjectConfigNeeded";//Messages.TibcoAnt_ProjectConfigNeeded();
-            }
-            e.printStackTrace( listener.fatalError(errorMessage) );
+            e.printStackTrace( listener.fatalError(Messages.ExecFailed()) );
             return false;
         }
     }
@@ -286,6 +572,18 @@ public class StudioToolsBuilder extends Builder {
 			}
 			return items;
 		}
+
+		public ListBoxModel doFillExecVersionItems(@QueryParameter String name) {
+			ListBoxModel items = new ListBoxModel();
+			items.add("Newest", "");
+			for (TibcoInstallation ti : getTibcoInstallations()) {
+				if (ti.getName().equals(name)) {
+					for (TibcoExecVersion v : ti.getExecVersions(TibcoExecRegistry.STUDIO_TOOLS))
+						items.add(v.getDescription(), v.getExecVersion());
+				}
+			}
+			return items;
+		}
 		
 
 
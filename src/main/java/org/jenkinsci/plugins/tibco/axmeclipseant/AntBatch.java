@@ -0,0 +1,221 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.axmeclipseant;
+
+import hudson.FilePath;
+import hudson.Util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Several build files, with their targets and properties, run by a single
+ * amx_eclipse_ant launch through a generated wrapper build script, so that
+ * Eclipse and OSGi start only once.
+ * 
+ * <p>
+ * Every entry is one line: the build file, relative to the module root,
+ * followed by its targets and <tt>-Dname=value</tt> properties. Each entry
+ * becomes a target of the wrapper calling the build file with
+ * <tt>&lt;ant inheritAll="false"&gt;</tt>, which touches a marker file once
+ * the call succeeded. The wrapper is run with <tt>-keep-going</tt>, so a
+ * failing entry doesn't stop the others and the markers give the result of
+ * each entry.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class AntBatch {
+
+    /**
+     * Wrapper property holding the directory of the result markers.
+     */
+    public static final String RESULTS_PROPERTY = "tibco.batch.results";
+
+    private final List<Entry> entries;
+
+    private AntBatch(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Parses the batch definition, one entry per line. Blank lines and lines
+     * starting with <tt>#</tt> are skipped.
+     */
+    public static AntBatch parse(String spec) {
+        List<Entry> entries = new ArrayList<Entry>();
+        if (spec != null) {
+            for (String line : spec.split("[\r\n]+")) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#"))
+                    continue;
+                String[] tokens = Util.tokenize(line);
+                List<String> targets = new ArrayList<String>();
+                Map<String, String> properties = new LinkedHashMap<String, String>();
+                for (int i = 1; i < tokens.length; i++) {
+                    String t = tokens[i];
+                    if (t.startsWith("-D") && t.length() > 2) {
+                        int eq = t.indexOf('=');
+                        if (eq < 0)
+                            properties.put(t.substring(2), "");
+                        else
+                            properties.put(t.substring(2, eq), t.substring(eq + 1));
+                    } else {
+                        targets.add(t);
+                    }
+                }
+                entries.add(new Entry(entries.size() + 1, tokens[0], targets, properties));
+            }
+        }
+        return new AntBatch(Collections.unmodifiableList(entries));
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Gets the wrapper targets to run, one per entry.
+     */
+    public List<String> getTargets() {
+        List<String> targets = new ArrayList<String>(entries.size());
+        for (Entry e : entries)
+            targets.add(e.getTarget());
+        return targets;
+    }
+
+    /**
+     * Generates the wrapper build script.
+     * 
+     * @param basedir
+     *            directory the build files are relative to
+     */
+    public String toBuildScript(String basedir) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<project name=\"tibco-batch\" basedir=\"").append(escape(basedir)).append("\">\n");
+        for (Entry e : entries) {
+            xml.append("  <target name=\"").append(e.getTarget()).append("\">\n");
+            xml.append("    <echo message=\"").append(escape(e.toString())).append("\"/>\n");
+            xml.append("    <ant antfile=\"").append(escape(e.getBuildFile())).append("\" inheritAll=\"false\">\n");
+            for (String target : e.getTargets())
+                xml.append("      <target name=\"").append(escape(target)).append("\"/>\n");
+            for (Map.Entry<String, String> p : e.getProperties().entrySet())
+                xml.append("      <property name=\"").append(escape(p.getKey()))
+                        .append("\" value=\"").append(escape(p.getValue())).append("\"/>\n");
+            xml.append("    </ant>\n");
+            xml.append("    <touch file=\"${").append(RESULTS_PROPERTY).append("}/").append(e.getIndex()).append("\"/>\n");
+            xml.append("  </target>\n");
+        }
+        xml.append("</project>\n");
+        return xml.toString();
+    }
+
+    /**
+     * Gets the entries whose result marker is missing from the results
+     * directory.
+     */
+    public List<Entry> getFailed(FilePath results) throws IOException, InterruptedException {
+        List<Entry> failed = new ArrayList<Entry>();
+        for (Entry e : entries)
+            if (!results.child(String.valueOf(e.getIndex())).exists())
+                failed.add(e);
+        return failed;
+    }
+
+    private static String escape(String s) {
+        StringBuilder buf = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '<': buf.append("&lt;"); break;
+            case '>': buf.append("&gt;"); break;
+            case '&': buf.append("&amp;"); break;
+            case '"': buf.append("&quot;"); break;
+            default: buf.append(c);
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * One build file of the batch.
+     */
+    public static final class Entry {
+        private final int index;
+        private final String buildFile;
+        private final List<String> targets;
+        private final Map<String, String> properties;
+
+        Entry(int index, String buildFile, List<String> targets, Map<String, String> properties) {
+            this.index = index;
+            this.buildFile = buildFile;
+            this.targets = Collections.unmodifiableList(targets);
+            this.properties = Collections.unmodifiableMap(properties);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getBuildFile() {
+            return buildFile;
+        }
+
+        public List<String> getTargets() {
+            return targets;
+        }
+
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+
+        String getTarget() {
+            return "batch-" + index;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(buildFile);
+            for (String target : targets)
+                buf.append(' ').append(target);
+            return buf.toString();
+        }
+    }
+}
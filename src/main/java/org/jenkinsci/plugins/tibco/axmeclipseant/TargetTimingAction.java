@@ -0,0 +1,142 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.axmeclipseant;
+
+import hudson.Util;
+import hudson.model.Action;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.tibco.Messages;
+
+/**
+ * Durations of the Ant targets run by the amx_eclipse_ant steps of a build, as
+ * timed by {@link TibcoConsoleAnnotator}.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class TargetTimingAction implements Action {
+
+    private final List<Timing> timings = new ArrayList<Timing>();
+
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    public String getDisplayName() {
+        return Messages.TargetTimingDisplayName();
+    }
+
+    public String getUrlName() {
+        return "tibcoTargets";
+    }
+
+    /**
+     * Adds the timings of a step.
+     */
+    public synchronized void addAll(List<Timing> stepTimings) {
+        timings.addAll(stepTimings);
+    }
+
+    public synchronized List<Timing> getTimings() {
+        return Collections.unmodifiableList(new ArrayList<Timing>(timings));
+    }
+
+    /**
+     * Gets the total duration of each target, in run order. A target run by
+     * several steps counts once with the sum of its durations.
+     */
+    public synchronized Map<String, Long> getDurations() {
+        Map<String, Long> durations = new LinkedHashMap<String, Long>();
+        for (Timing t : timings) {
+            Long d = durations.get(t.getTarget());
+            durations.put(t.getTarget(), d == null ? t.getDuration() : d + t.getDuration());
+        }
+        return durations;
+    }
+
+    public synchronized long getTotal() {
+        long total = 0;
+        for (Timing t : timings)
+            total += t.getDuration();
+        return total;
+    }
+
+    public String getTotalString() {
+        return Util.getTimeSpanString(getTotal());
+    }
+
+    /**
+     * Duration of one target.
+     */
+    public static final class Timing implements Serializable {
+        private final String step;
+        private final String target;
+        private final long duration;
+
+        public Timing(String step, String target, long duration) {
+            this.step = step;
+            this.target = target;
+            this.duration = duration;
+        }
+
+        /**
+         * Gets the build file of the step that ran the target.
+         */
+        public String getStep() {
+            return step;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * Gets the duration in milliseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        public String getDurationString() {
+            return Util.getTimeSpanString(duration);
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.axmeclipseant;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jenkinsci.plugins.tibco.Messages;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Trend of the target durations recorded by {@link TargetTimingAction} over
+ * the last builds of a project, shown on the project page.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class TargetTimingProjectAction implements Action {
+
+    /**
+     * Number of last builds looked at by the trend, with timings or not.
+     */
+    public static final int MAX_BUILDS = 30;
+
+    /**
+     * Number of targets shown by the trend, the slowest of the last build.
+     */
+    public static final int MAX_TARGETS = 8;
+
+    private final AbstractProject<?, ?> project;
+
+    public TargetTimingProjectAction(AbstractProject<?, ?> project) {
+        this.project = project;
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return Messages.TargetTimingDisplayName();
+    }
+
+    public String getUrlName() {
+        return "tibcoTargets";
+    }
+
+    /**
+     * Gets the builds with timings among the last {@link #MAX_BUILDS} ones,
+     * newest first. Computed once per request, since a page asks for them
+     * several times.
+     */
+    @SuppressWarnings("unchecked")
+    public List<AbstractBuild<?, ?>> getBuilds() {
+        StaplerRequest req = Stapler.getCurrentRequest();
+        String attribute = TargetTimingProjectAction.class.getName() + '|' + project.getFullName();
+        if (req != null && req.getAttribute(attribute) != null)
+            return (List<AbstractBuild<?, ?>>) req.getAttribute(attribute);
+        List<AbstractBuild<?, ?>> builds = new ArrayList<AbstractBuild<?, ?>>();
+        int n = 0;
+        for (AbstractBuild<?, ?> b = project.getLastBuild(); b != null && n < MAX_BUILDS; b = b.getPreviousBuild(), n++) {
+            if (b.getAction(TargetTimingAction.class) != null)
+                builds.add(b);
+        }
+        if (req != null)
+            req.setAttribute(attribute, builds);
+        return builds;
+    }
+
+    public boolean hasTimings() {
+        return !getBuilds().isEmpty();
+    }
+
+    /**
+     * Gets the targets shown by the trend: the slowest targets of the last
+     * build with timings.
+     */
+    public List<String> getTargets() {
+        List<AbstractBuild<?, ?>> builds = getBuilds();
+        if (builds.isEmpty())
+            return Collections.emptyList();
+        final Map<String, Long> durations = builds.get(0).getAction(TargetTimingAction.class).getDurations();
+        List<String> targets = new ArrayList<String>(durations.keySet());
+        Collections.sort(targets, new Comparator<String>() {
+            public int compare(String a, String b) {
+                return durations.get(b).compareTo(durations.get(a));
+            }
+        });
+        return targets.size() > MAX_TARGETS ? targets.subList(0, MAX_TARGETS) : targets;
+    }
+
+    public Graph getGraph() {
+        final List<AbstractBuild<?, ?>> builds = getBuilds();
+        if (builds.isEmpty())
+            return null;
+        return new Graph(builds.get(0).getTimestamp(), 500, 200) {
+            @Override
+            protected JFreeChart createGraph() {
+                Set<String> targets = new LinkedHashSet<String>(getTargets());
+                DataSetBuilder<String, NumberOnlyBuildLabel> dsb = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+                for (AbstractBuild<?, ?> b : builds) {
+                    Map<String, Long> durations = b.getAction(TargetTimingAction.class).getDurations();
+                    for (String target : targets) {
+                        Long d = durations.get(target);
+                        dsb.add(d == null ? 0 : d / 1000.0, target, new NumberOnlyBuildLabel(b));
+                    }
+                }
+                JFreeChart chart = ChartFactory.createLineChart(null, null, "seconds", dsb.build(),
+                        PlotOrientation.VERTICAL, true, true, false);
+                chart.setBackgroundPaint(Color.white);
+                return chart;
+            }
+        };
+    }
+}
@@ -24,17 +24,18 @@
 package org.jenkinsci.plugins.tibco.axmeclipseant;
 
 import hudson.Launcher;
-import hudson.console.LineTransformationOutputStream;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 
-import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder;
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder.DescriptorImpl;
+import org.jenkinsci.plugins.tibco.console.AntConsoleAnnotator;
+import org.jenkinsci.plugins.tibco.console.EncodedNote;
 import org.kohsuke.stapler.StaplerRequest;
 /**
  * 
@@ -52,40 +53,49 @@ import org.kohsuke.stapler.StaplerRequest;
  * 
  */
 
-public class TibcoConsoleAnnotator extends LineTransformationOutputStream {
-    private final OutputStream outputConsole;
-    private final Charset charset;
+public class TibcoConsoleAnnotator extends AntConsoleAnnotator {
+    private static final EncodedNote TARGET_NOTE = new EncodedNote(new TibcoTargetNote());
+    private static final EncodedNote OUTCOME_NOTE = new EncodedNote(new TibcoOutcomeNote());
 
-    private boolean isEmptyLine;
+    private final String step;
+
+    private final List<TargetTimingAction.Timing> timings = new ArrayList<TargetTimingAction.Timing>();
+    private String currentTarget;
+    private long currentStart;
 
     public TibcoConsoleAnnotator(OutputStream out, Charset charset) {
-        this.outputConsole = out;
-        this.charset = charset;
+        this(out, charset, null);
     }
 
-    @Override
-    protected void eol(byte[] b, int len) throws IOException {
-        String line = charset.decode(ByteBuffer.wrap(b, 0, len)).toString();
-        line = trimEOL(line);
-        if (isEmptyLine && endsWith(line,':') && line.indexOf(' ')<0)
-            new TibcoTargetNote().encodeTo(outputConsole);
-
-        if (line.equals("BUILD SUCCESSFUL") || line.equals("BUILD FAILED"))
-            new TibcoOutcomeNote().encodeTo(outputConsole);
-
-        isEmptyLine = line.length()==0;
-        outputConsole.write(b,0,len);
+    /**
+     * @param step
+     *            build file of the step, recorded with the target timings
+     */
+    public TibcoConsoleAnnotator(OutputStream out, Charset charset, String step) {
+        super(out, charset, step, TARGET_NOTE, OUTCOME_NOTE);
+        this.step = step;
     }
 
-    private boolean endsWith(String line, char c) {
-        int len = line.length();
-        return len>0 && line.charAt(len-1)==c;
+    @Override
+    protected synchronized void onTarget(byte[] b, int len) {
+        onOutcome();
+        currentTarget = new String(b, 0, len, charset);
+        currentStart = System.currentTimeMillis();
     }
 
     @Override
-    public void close() throws IOException {
-        super.close();
-        outputConsole.close();
+    protected synchronized void onOutcome() {
+        if (currentTarget!=null)
+            timings.add(new TargetTimingAction.Timing(step, currentTarget, System.currentTimeMillis()-currentStart));
+        currentTarget = null;
     }
 
+    /**
+     * Gets the durations of the targets seen so far, the running target
+     * included.
+     */
+    public synchronized List<TargetTimingAction.Timing> getTimings() {
+        onOutcome();
+        return new ArrayList<TargetTimingAction.Timing>(timings);
+    }
 }
@@ -32,8 +32,6 @@ import hudson.console.ConsoleAnnotator;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 
-import java.util.regex.Pattern;
-
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder;
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder.DescriptorImpl;
 import org.kohsuke.stapler.StaplerRequest;
@@ -62,9 +60,10 @@ public final class TibcoTargetNote extends ConsoleNote {
     	
         if (!ENABLED)   return null;
 
-        MarkupText.SubText t = text.findToken(Pattern.compile(".*(?=:)"));
-        if (t!=null)
-            t.addMarkup(0,t.length(),"<b class=ant-target>","</b>");
+        // the target name runs up to the last colon
+        int colon = text.getText().lastIndexOf(':');
+        if (colon>=0)
+            text.addMarkup(0,colon,"<b class=ant-target>","</b>");
         return null;
     }
 
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.cache;
+
+import hudson.DescriptorExtensionList;
+import hudson.ExtensionPoint;
+import hudson.FilePath;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.tibco.Messages;
+
+/**
+ * Storage of build outputs, like EAR and DAA archives, shared by every job and
+ * node and keyed by the {@link InputFingerprint} of the build that produced
+ * them. Implementations move the bytes from and to the node directly, never
+ * through the master.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public abstract class BuildOutputCache extends AbstractDescribableImpl<BuildOutputCache> implements ExtensionPoint {
+
+    /**
+     * Copies the output stored for key to target.
+     * 
+     * @return false if nothing is stored for key
+     */
+    public abstract boolean fetch(String key, FilePath target, TaskListener listener) throws IOException, InterruptedException;
+
+    /**
+     * Stores source as the output for key.
+     */
+    public abstract void store(String key, FilePath source, TaskListener listener) throws IOException, InterruptedException;
+
+    /**
+     * Like {@link #fetch}, but a cache that fails is only a miss, so that the
+     * build goes on without it.
+     */
+    public final boolean fetchOrMiss(String key, FilePath target, TaskListener listener) throws InterruptedException {
+        try {
+            return fetch(key, target, listener);
+        } catch (IOException e) {
+            listener.getLogger().println(Messages.CacheFetchFailed(key, e));
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #store}, but a cache that fails is only reported, so that
+     * it never fails a build that succeeded.
+     */
+    public final void storeOrWarn(String key, FilePath source, TaskListener listener) throws InterruptedException {
+        try {
+            store(key, source, listener);
+        } catch (IOException e) {
+            listener.getLogger().println(Messages.CacheStoreFailed(key, e));
+        }
+    }
+
+    /**
+     * Gets the configured cache, or null if there's none.
+     */
+    public static BuildOutputCache get() {
+        BuildOutputCacheConfiguration c = BuildOutputCacheConfiguration.get();
+        return c == null ? null : c.getCache();
+    }
+
+    public static DescriptorExtensionList<BuildOutputCache, Descriptor<BuildOutputCache>> all() {
+        return Jenkins.getInstance().<BuildOutputCache, Descriptor<BuildOutputCache>>getDescriptorList(BuildOutputCache.class);
+    }
+}
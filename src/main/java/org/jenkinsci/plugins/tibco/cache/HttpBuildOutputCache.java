@@ -0,0 +1,192 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.cache;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.util.FormValidation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.tibco.Messages;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * {@link BuildOutputCache} served over HTTP: outputs are read with
+ * <tt>GET url/key</tt> and written with <tt>PUT url/key</tt>, straight from
+ * the node. Any server accepting those, like a WebDAV folder or a plain file
+ * upload server, can back it.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class HttpBuildOutputCache extends BuildOutputCache {
+
+    /**
+     * Milliseconds to wait for the server to accept the connection, and then
+     * for each read, before giving up on the cache.
+     */
+    private static final int CONNECT_TIMEOUT = Integer.getInteger(HttpBuildOutputCache.class.getName() + ".connectTimeout", 10 * 1000);
+    private static final int READ_TIMEOUT = Integer.getInteger(HttpBuildOutputCache.class.getName() + ".readTimeout", 60 * 1000);
+
+    private final String url;
+
+    @DataBoundConstructor
+    public HttpBuildOutputCache(String url) {
+        String u = Util.fixEmptyAndTrim(url);
+        this.url = u != null && u.endsWith("/") ? u.substring(0, u.length() - 1) : u;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public boolean fetch(String key, FilePath target, TaskListener listener) throws IOException, InterruptedException {
+        if (target.getParent() != null)
+            target.getParent().mkdirs();
+        return target.act(new Fetch(url + '/' + key));
+    }
+
+    @Override
+    public void store(String key, FilePath source, TaskListener listener) throws IOException, InterruptedException {
+        source.act(new Store(url + '/' + key));
+    }
+
+    private static final class Fetch implements FileCallable<Boolean> {
+        private static final long serialVersionUID = 1L;
+        private final String url;
+
+        Fetch(String url) {
+            this.url = url;
+        }
+
+        public Boolean invoke(File f, VirtualChannel channel) throws IOException {
+            HttpURLConnection con = open(url);
+            try {
+                int code = con.getResponseCode();
+                if (code == HttpURLConnection.HTTP_NOT_FOUND)
+                    return false;
+                if (code != HttpURLConnection.HTTP_OK)
+                    throw new IOException("GET " + url + " returned " + code);
+                File tmp = new File(f.getPath() + ".tmp");
+                InputStream in = con.getInputStream();
+                OutputStream out = new FileOutputStream(tmp);
+                boolean complete = false;
+                try {
+                    IOUtils.copy(in, out);
+                    complete = true;
+                } finally {
+                    IOUtils.closeQuietly(in);
+                    out.close();
+                    if (!complete)
+                        tmp.delete();
+                }
+                f.delete();
+                if (!tmp.renameTo(f))
+                    throw new IOException("Unable to rename " + tmp + " to " + f);
+                return true;
+            } catch (SocketTimeoutException e) {
+                // a server too slow to answer is a miss, the build makes the output itself
+                return false;
+            } finally {
+                con.disconnect();
+            }
+        }
+    }
+
+    private static final class Store implements FileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+        private final String url;
+
+        Store(String url) {
+            this.url = url;
+        }
+
+        public Void invoke(File f, VirtualChannel channel) throws IOException {
+            HttpURLConnection con = open(url);
+            try {
+                con.setDoOutput(true);
+                con.setRequestMethod("PUT");
+                con.setRequestProperty("Content-Type", "application/octet-stream");
+                con.setChunkedStreamingMode(64 * 1024);
+                InputStream in = new FileInputStream(f);
+                OutputStream out = con.getOutputStream();
+                try {
+                    IOUtils.copy(in, out);
+                } finally {
+                    in.close();
+                    out.close();
+                }
+                int code = con.getResponseCode();
+                if (code / 100 != 2)
+                    throw new IOException("PUT " + url + " returned " + code);
+                return null;
+            } finally {
+                con.disconnect();
+            }
+        }
+    }
+
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+        con.setConnectTimeout(CONNECT_TIMEOUT);
+        con.setReadTimeout(READ_TIMEOUT);
+        return con;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<BuildOutputCache> {
+        @Override
+        public String getDisplayName() {
+            return Messages.HttpBuildOutputCacheDisplayName();
+        }
+
+        public FormValidation doCheckUrl(@QueryParameter String value) {
+            return FormValidation.validateRequired(value);
+        }
+    }
+}
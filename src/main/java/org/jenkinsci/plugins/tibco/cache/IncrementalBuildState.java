@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.cache;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+
+import java.io.IOException;
+
+/**
+ * Remembers, on the node, the input fingerprint and the output of the last
+ * successful run of a build step, so that a later run with the same inputs can
+ * restore the output instead of building it again.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class IncrementalBuildState {
+
+    /**
+     * Node root relative directory holding the states.
+     */
+    public static final String STATE_DIR = "tibco-incremental";
+
+    private final FilePath dir;
+
+    private IncrementalBuildState(FilePath dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Gets the state of a step, identified by its job and output.
+     */
+    public static IncrementalBuildState of(Node node, AbstractBuild<?, ?> build, FilePath output) {
+        String key = build.getProject().getFullName() + '|' + output.getRemote();
+        return new IncrementalBuildState(node.getRootPath().child(STATE_DIR).child(Util.getDigestOf(key)));
+    }
+
+    /**
+     * Copies back the output of the last successful run if it had the same
+     * fingerprint.
+     * 
+     * @return true if the output was restored
+     */
+    public boolean restore(String fingerprint, FilePath output) throws IOException, InterruptedException {
+        FilePath last = dir.child("fingerprint");
+        FilePath saved = dir.child("output");
+        if (!last.exists() || !saved.exists() || !last.readToString().trim().equals(fingerprint))
+            return false;
+        if (output.getParent() != null)
+            output.getParent().mkdirs();
+        saved.copyTo(output);
+        return true;
+    }
+
+    /**
+     * Records the output of a successful run.
+     */
+    public void save(String fingerprint, FilePath output) throws IOException, InterruptedException {
+        if (!output.exists())
+            return;
+        dir.mkdirs();
+        dir.child("fingerprint").delete();
+        output.copyTo(dir.child("output"));
+        dir.child("fingerprint").write(fingerprint, "UTF-8");
+    }
+}
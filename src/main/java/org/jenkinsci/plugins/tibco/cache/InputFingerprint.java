@@ -0,0 +1,234 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.cache;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Content hash of everything a TIBCO build depends on: a project directory
+ * tree, single input files like the TRA and the class path jars, plus
+ * free-form values like the executable version and the options. Computed
+ * on the node in a single call.
+ * 
+ * <p>
+ * Only file names, labels and paths relative to the project are hashed,
+ * never absolute paths, so the same inputs give the same fingerprint in any
+ * job and on any node.
+ * 
+ * <p>
+ * Version control metadata and Eclipse <tt>.metadata</tt> directories are
+ * never part of the tree: they change on every checkout and build without
+ * changing what is built. Other paths, like the build output or the files the
+ * plugin writes into the workspace, are left out with {@link #exclude}.
+ * Directories reached through links are followed once, so a link cycle
+ * ends instead of recursing forever.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class InputFingerprint implements Callable<String, IOException> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Names of the directories never hashed, wherever they are in the tree.
+     */
+    private static final Set<String> IGNORED = new HashSet<String>(Arrays.asList(
+            ".git", ".svn", ".hg", ".bzr", "CVS", ".metadata"));
+
+    private final String dir;
+    private final List<String> excluded = new ArrayList<String>();
+    /**
+     * Label and path pairs.
+     */
+    private final List<String[]> files = new ArrayList<String[]>();
+    private final List<String> classPaths = new ArrayList<String>();
+    private final List<String> values = new ArrayList<String>();
+
+    /**
+     * @param dir
+     *            directory whose whole tree is an input, or null
+     * @param excluded
+     *            path inside dir to ignore, like the build output, or null
+     */
+    public InputFingerprint(FilePath dir, FilePath excluded) {
+        this.dir = dir == null ? null : dir.getRemote();
+        exclude(excluded);
+    }
+
+    /**
+     * Ignores a file or directory of the tree.
+     */
+    public InputFingerprint exclude(FilePath path) {
+        if (path != null)
+            excluded.add(path.getRemote());
+        return this;
+    }
+
+    public InputFingerprint file(String path) {
+        return path == null ? this : file("file:" + new File(path).getName(), path);
+    }
+
+    /**
+     * Adds a file under a label instead of its name, for files whose name
+     * changes from node to node.
+     */
+    public InputFingerprint file(String label, String path) {
+        if (path != null)
+            files.add(new String[] {label, path});
+        return this;
+    }
+
+    /**
+     * Adds every entry of a class path, split with the node path separator.
+     */
+    public InputFingerprint classPath(String classPath) {
+        if (classPath != null)
+            classPaths.add(classPath);
+        return this;
+    }
+
+    public InputFingerprint value(String value) {
+        values.add(String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Adds every entry of a map, like the build variables, in key order.
+     */
+    public InputFingerprint values(Map<String, String> map) {
+        for (Map.Entry<String, String> e : new TreeMap<String, String>(map).entrySet())
+            values.add(e.getKey() + '=' + e.getValue());
+        return this;
+    }
+
+    /**
+     * Computes the fingerprint on the node.
+     * 
+     * @return hex SHA-1
+     */
+    public String compute(VirtualChannel channel) throws IOException, InterruptedException {
+        return channel.call(this);
+    }
+
+    public String call() throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage());
+        }
+        byte[] buf = new byte[64 * 1024];
+        for (String v : values)
+            update(md, "value:" + v);
+        if (dir != null) {
+            File root = new File(dir);
+            Set<File> skip = new HashSet<File>();
+            for (String e : excluded)
+                skip.add(new File(e).getAbsoluteFile());
+            digestTree(md, root, "", skip, new HashSet<String>(), buf);
+        }
+        for (String[] f : files)
+            digestFile(md, new File(f[1]), f[0], buf);
+        for (String cp : classPaths) {
+            for (String entry : cp.split(File.pathSeparator)) {
+                if (entry.trim().length() > 0)
+                    digestFile(md, new File(entry.trim()), "cp:" + new File(entry.trim()).getName(), buf);
+            }
+        }
+        return Util.toHexString(md.digest());
+    }
+
+    /**
+     * @param visited
+     *            canonical paths of the directories already hashed
+     */
+    private static void digestTree(MessageDigest md, File dir, String rel, Set<File> skip, Set<String> visited, byte[] buf) throws IOException {
+        if (!visited.add(dir.getCanonicalPath())) {
+            update(md, rel + "/->");
+            return;
+        }
+        String[] names = dir.list();
+        if (names == null)
+            return;
+        Arrays.sort(names);
+        for (String name : names) {
+            File f = new File(dir, name);
+            if (skip.contains(f.getAbsoluteFile()))
+                continue;
+            String path = rel + '/' + name;
+            if (f.isDirectory()) {
+                if (!IGNORED.contains(name))
+                    digestTree(md, f, path, skip, visited, buf);
+            } else {
+                digestFile(md, f, path, buf);
+            }
+        }
+    }
+
+    private static void digestFile(MessageDigest md, File f, String name, byte[] buf) throws IOException {
+        update(md, name);
+        if (!f.isFile()) {
+            update(md, "missing");
+            return;
+        }
+        InputStream in = new FileInputStream(f);
+        try {
+            int len;
+            while ((len = in.read(buf)) >= 0)
+                md.update(buf, 0, len);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void update(MessageDigest md, String s) throws IOException {
+        md.update(s.getBytes("UTF-8"));
+        md.update((byte) 0);
+    }
+}
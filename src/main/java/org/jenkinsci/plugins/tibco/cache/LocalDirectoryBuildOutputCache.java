@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.cache;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+
+import java.io.IOException;
+
+import org.jenkinsci.plugins.tibco.Messages;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * {@link BuildOutputCache} kept in a directory every node can reach under the
+ * same path, like a shared mount.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class LocalDirectoryBuildOutputCache extends BuildOutputCache {
+
+    private final String directory;
+
+    @DataBoundConstructor
+    public LocalDirectoryBuildOutputCache(String directory) {
+        this.directory = Util.fixEmptyAndTrim(directory);
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean fetch(String key, FilePath target, TaskListener listener) throws IOException, InterruptedException {
+        FilePath entry = new FilePath(target.getChannel(), directory).child(key);
+        if (!entry.exists())
+            return false;
+        if (target.getParent() != null)
+            target.getParent().mkdirs();
+        entry.copyTo(target);
+        return true;
+    }
+
+    @Override
+    public void store(String key, FilePath source, TaskListener listener) throws IOException, InterruptedException {
+        FilePath dir = new FilePath(source.getChannel(), directory);
+        dir.mkdirs();
+        // copy under a temporary name first, so other nodes never see a partial entry
+        FilePath tmp = dir.createTempFile(key, ".tmp");
+        try {
+            source.copyTo(tmp);
+            tmp.renameTo(dir.child(key));
+        } finally {
+            // the rename fails silently, as on Windows when a concurrent store made the entry first
+            if (tmp.exists())
+                tmp.delete();
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<BuildOutputCache> {
+        @Override
+        public String getDisplayName() {
+            return Messages.LocalDirectoryBuildOutputCacheDisplayName();
+        }
+
+        public FormValidation doCheckDirectory(@QueryParameter String value) {
+            return FormValidation.validateRequired(value);
+        }
+    }
+}
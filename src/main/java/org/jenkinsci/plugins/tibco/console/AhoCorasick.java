@@ -0,0 +1,129 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton matching a set of byte patterns in a single pass
+ * over a line, whatever the number of patterns. Failure links are folded into
+ * a full transition table, so each byte costs one table lookup.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+final class AhoCorasick {
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final int[][] next;
+    /**
+     * Lowest pattern index ending at each state, failure links included.
+     */
+    private final int[] output;
+
+    AhoCorasick(List<byte[]> patterns) {
+        List<int[]> table = new ArrayList<int[]>();
+        List<Integer> out = new ArrayList<Integer>();
+        table.add(newRow());
+        out.add(NONE);
+        for (int i = 0; i < patterns.size(); i++) {
+            int state = 0;
+            for (byte b : patterns.get(i)) {
+                int c = b & 0xff;
+                if (table.get(state)[c] < 0) {
+                    table.get(state)[c] = table.size();
+                    table.add(newRow());
+                    out.add(NONE);
+                }
+                state = table.get(state)[c];
+            }
+            out.set(state, Math.min(out.get(state), i));
+        }
+
+        next = table.toArray(new int[table.size()][]);
+        output = new int[out.size()];
+        for (int i = 0; i < output.length; i++)
+            output[i] = out.get(i);
+
+        // breadth first, so the failure state of a state is complete before the state itself
+        int[] fail = new int[next.length];
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        for (int c = 0; c < 256; c++) {
+            if (next[0][c] < 0) {
+                next[0][c] = 0;
+            } else {
+                fail[next[0][c]] = 0;
+                queue.add(next[0][c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.removeFirst();
+            for (int c = 0; c < 256; c++) {
+                int t = next[s][c];
+                if (t < 0) {
+                    next[s][c] = next[fail[s]][c];
+                } else {
+                    fail[t] = next[fail[s]][c];
+                    output[t] = Math.min(output[t], output[fail[t]]);
+                    queue.add(t);
+                }
+            }
+        }
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[256];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Finds the pattern with the lowest index occurring in the first len
+     * bytes of b.
+     * 
+     * @return the pattern index, or -1 if none occurs
+     */
+    int match(byte[] b, int len) {
+        int state = 0;
+        int best = NONE;
+        for (int i = 0; i < len && best > 0; i++) {
+            state = next[state][b[i] & 0xff];
+            if (output[state] < best)
+                best = output[state];
+        }
+        return best == NONE ? -1 : best;
+    }
+}
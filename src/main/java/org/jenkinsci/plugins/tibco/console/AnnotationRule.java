@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jenkinsci.plugins.tibco.Messages;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Highlights the console lines of the TIBCO builders containing a text, with
+ * the style of a severity.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class AnnotationRule extends AbstractDescribableImpl<AnnotationRule> {
+
+    public static final String ERROR = "error";
+    public static final String WARNING = "warning";
+    public static final String INFO = "info";
+
+    private static final List<String> SEVERITIES = Arrays.asList(ERROR, WARNING, INFO);
+
+    private final String pattern;
+    private final String severity;
+
+    @DataBoundConstructor
+    public AnnotationRule(String pattern, String severity) {
+        this.pattern = Util.fixEmpty(pattern);
+        this.severity = isSeverity(severity) ? severity : INFO;
+    }
+
+    /**
+     * Tells whether s is one of the known severities.
+     */
+    static boolean isSeverity(String s) {
+        return SEVERITIES.contains(s);
+    }
+
+    /**
+     * Gets the text to look for, matched as is.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getSeverity() {
+        return severity;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<AnnotationRule> {
+        @Override
+        public String getDisplayName() {
+            return Messages.AnnotationRuleDisplayName();
+        }
+
+        public ListBoxModel doFillSeverityItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (String s : SEVERITIES)
+                items.add(s);
+            return items;
+        }
+
+        public FormValidation doCheckPattern(@QueryParameter String value) {
+            if (Util.fixEmpty(value) == null)
+                return FormValidation.error(Messages.AnnotationRuleEmpty());
+            for (int i = 0; i < value.length(); i++)
+                if (value.charAt(i) > 127)
+                    return FormValidation.warning(Messages.AnnotationRuleNotAscii());
+            return FormValidation.ok();
+        }
+    }
+}
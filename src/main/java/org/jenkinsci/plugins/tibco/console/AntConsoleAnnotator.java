@@ -0,0 +1,125 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Annotates the Ant output of a TIBCO builder while it streams: target
+ * headers, the build outcome, and the lines matched by the
+ * {@link AnnotationRules}. Lines are matched on their bytes, see
+ * {@link AsciiLine}. The problems reported in the output are extracted on
+ * the way, see {@link ProblemExtractor}.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public abstract class AntConsoleAnnotator extends LineTransformationOutputStream {
+    private static final byte[] BUILD_SUCCESSFUL = AsciiLine.bytes("BUILD SUCCESSFUL");
+    private static final byte[] BUILD_FAILED = AsciiLine.bytes("BUILD FAILED");
+
+    protected final OutputStream outputConsole;
+    protected final Charset charset;
+    private final EncodedNote targetNote;
+    private final EncodedNote outcomeNote;
+    private final RuleSet rules;
+    private final ProblemExtractor problems;
+
+    private boolean isEmptyLine;
+
+    /**
+     * @param step
+     *            build file or project of the step, recorded with the
+     *            problems
+     */
+    protected AntConsoleAnnotator(OutputStream out, Charset charset, String step, EncodedNote targetNote, EncodedNote outcomeNote) {
+        this.outputConsole = out;
+        this.charset = charset;
+        this.targetNote = targetNote;
+        this.outcomeNote = outcomeNote;
+        this.rules = AnnotationRules.ruleSet();
+        this.problems = new ProblemExtractor(step, charset);
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        int end = AsciiLine.trimEOL(b, len);
+        if (isEmptyLine && AsciiLine.isTargetHeader(b, end)) {
+            targetNote.writeTo(outputConsole);
+            onTarget(b, end-1);
+        } else if (AsciiLine.equals(b, end, BUILD_SUCCESSFUL) || AsciiLine.equals(b, end, BUILD_FAILED)) {
+            outcomeNote.writeTo(outputConsole);
+            onOutcome();
+        } else {
+            EncodedNote note = rules.match(b, end);
+            if (note!=null)
+                note.writeTo(outputConsole);
+            problems.line(b, end);
+        }
+
+        isEmptyLine = end==0;
+        outputConsole.write(b,0,len);
+    }
+
+    /**
+     * Called on a target header.
+     * 
+     * @param len
+     *            length of the target name, without the colon
+     */
+    protected void onTarget(byte[] b, int len) {
+    }
+
+    /**
+     * Called on the build outcome line.
+     */
+    protected void onOutcome() {
+    }
+
+    /**
+     * Gets the problems found so far.
+     */
+    public ProblemExtractor getProblems() {
+        problems.finish();
+        return problems;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        outputConsole.close();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Matches the ASCII markers of Ant output directly on the bytes of a console
+ * line, without decoding it. Holds for every charset encoding ASCII as
+ * itself, which covers the charsets of build consoles.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class AsciiLine {
+
+    private AsciiLine() {
+    }
+
+    /**
+     * Gets the bytes of an ASCII marker.
+     */
+    public static byte[] bytes(String ascii) {
+        try {
+            return ascii.getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Gets the length of the line without its trailing line terminators.
+     */
+    public static int trimEOL(byte[] b, int len) {
+        while (len > 0 && (b[len - 1] == '\n' || b[len - 1] == '\r'))
+            len--;
+        return len;
+    }
+
+    /**
+     * Whether the line is an Ant target header: a single word ending with
+     * <tt>:</tt>.
+     * 
+     * @param len
+     *            length of the line without line terminators
+     */
+    public static boolean isTargetHeader(byte[] b, int len) {
+        if (len < 1 || b[len - 1] != ':')
+            return false;
+        for (int i = 0; i < len - 1; i++)
+            if (b[i] == ' ')
+                return false;
+        return true;
+    }
+
+    /**
+     * Whether the line is exactly the given marker.
+     * 
+     * @param len
+     *            length of the line without line terminators
+     */
+    public static boolean equals(byte[] b, int len, byte[] marker) {
+        if (len != marker.length)
+            return false;
+        for (int i = 0; i < len; i++)
+            if (b[i] != marker[i])
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Reduces the output of a TIBCO process to what matters in the console:
+ * target headers, the build outcome, and the lines with errors or warnings
+ * followed by a few lines of context. Every line still goes to a full log,
+ * and the last lines are kept in a ring buffer, to be dumped if the step
+ * fails.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class LogReducer extends LineTransformationOutputStream {
+
+    /**
+     * Lines kept after an error or warning line, enough for the source,
+     * caret and message lines of the Eclipse compiler.
+     */
+    public static final int CONTEXT = 3;
+
+    private static final byte[] BUILD_SUCCESSFUL = AsciiLine.bytes("BUILD SUCCESSFUL");
+    private static final byte[] BUILD_FAILED = AsciiLine.bytes("BUILD FAILED");
+    private static final AhoCorasick KEYWORDS = new AhoCorasick(Arrays.asList(
+            AsciiLine.bytes("ERROR"), AsciiLine.bytes("Error"), AsciiLine.bytes("error"),
+            AsciiLine.bytes("WARN"), AsciiLine.bytes("Warn"), AsciiLine.bytes("warn"),
+            AsciiLine.bytes("Exception"), AsciiLine.bytes("FAILED")));
+
+    private final OutputStream console;
+    private final OutputStream full;
+
+    // ring buffer of the last lines, whose arrays are reused
+    private final byte[][] ring;
+    private final int[] ringLength;
+    private int ringNext;
+    private int ringCount;
+
+    private boolean isEmptyLine;
+    private boolean previousKept;
+    private int context;
+    private long omitted;
+
+    /**
+     * @param console
+     *            receives the reduced output
+     * @param full
+     *            receives the whole output, closed with this stream
+     * @param tailLines
+     *            lines kept for {@link #writeTail()}
+     */
+    public LogReducer(OutputStream console, OutputStream full, int tailLines) {
+        this.console = console;
+        this.full = full;
+        this.ring = new byte[Math.max(1, tailLines)][];
+        this.ringLength = new int[ring.length];
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        full.write(b, 0, len);
+        remember(b, len);
+
+        int end = AsciiLine.trimEOL(b, len);
+        boolean header = isEmptyLine && AsciiLine.isTargetHeader(b, end);
+        isEmptyLine = end == 0;
+        if (KEYWORDS.match(b, end) >= 0) {
+            context = CONTEXT;
+        } else if (context > 0) {
+            context--;
+        } else if (!header && !AsciiLine.equals(b, end, BUILD_SUCCESSFUL) && !AsciiLine.equals(b, end, BUILD_FAILED)) {
+            omitted++;
+            previousKept = false;
+            return;
+        }
+        // target headers are told by the empty line before them, which may have been left out
+        if (header && !previousKept)
+            console.write('\n');
+        console.write(b, 0, len);
+        previousKept = true;
+    }
+
+    private void remember(byte[] b, int len) {
+        byte[] slot = ring[ringNext];
+        if (slot == null || slot.length < len)
+            ring[ringNext] = slot = new byte[Math.max(len, 128)];
+        System.arraycopy(b, 0, slot, 0, len);
+        ringLength[ringNext] = len;
+        ringNext = (ringNext + 1) % ring.length;
+        ringCount = Math.min(ringCount + 1, ring.length);
+    }
+
+    /**
+     * Gets the count of lines left out of the console.
+     */
+    public long getOmitted() {
+        return omitted;
+    }
+
+    /**
+     * Writes the last lines of the output to the console.
+     */
+    public void writeTail() throws IOException {
+        int first = (ringNext - ringCount + ring.length) % ring.length;
+        for (int i = 0; i < ringCount; i++) {
+            int slot = (first + i) % ring.length;
+            console.write(ring[slot], 0, ringLength[slot]);
+        }
+        console.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        full.close();
+    }
+}
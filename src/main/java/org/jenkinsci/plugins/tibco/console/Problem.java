@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import java.io.Serializable;
+
+/**
+ * A compiler, validation or packaging problem found in the console of a TIBCO
+ * build step.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class Problem implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String step;
+    private final String severity;
+    private final String file;
+    private final int line;
+    private final String message;
+
+    public Problem(String step, String severity, String file, int line, String message) {
+        this.step = step;
+        this.severity = severity;
+        this.file = file;
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * Gets the build file or project of the step that reported the problem.
+     */
+    public String getStep() {
+        return step;
+    }
+
+    /**
+     * Gets {@link AnnotationRule#ERROR} or {@link AnnotationRule#WARNING}.
+     */
+    public String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Gets the file in error, or null if the output doesn't tell.
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the line in error, or 0 if the output doesn't tell.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the problems reported by the compilers, validators and packagers
+ * run by the TIBCO builders from their output, line by line as it streams.
+ * 
+ * <p>
+ * Lines are first matched on their bytes against a few keywords, and only
+ * the matching ones are decoded and parsed. At most {@link #MAX_PROBLEMS}
+ * problems are kept per step, while the counts go on.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class ProblemExtractor {
+
+    /**
+     * Problems kept per step.
+     */
+    public static int MAX_PROBLEMS = Integer.getInteger(ProblemExtractor.class.getName() + ".maxProblems", 1000);
+
+    /**
+     * Characters kept per message.
+     */
+    static final int MAX_MESSAGE = 500;
+
+    /**
+     * Lines the message of an Eclipse compiler problem is looked for in.
+     */
+    private static final int ECJ_LINES = 6;
+
+    private static final AhoCorasick KEYWORDS = new AhoCorasick(Arrays.asList(
+            AsciiLine.bytes("ERROR"), AsciiLine.bytes("Error"), AsciiLine.bytes("error"),
+            AsciiLine.bytes("WARN"), AsciiLine.bytes("Warn"), AsciiLine.bytes("warn"),
+            AsciiLine.bytes(".java:")));
+
+    // an Ant task prefix, like "[javac] "
+    private static final String TASK = "^\\s*(?:\\[[\\w.-]+\\]\\s*)?";
+
+    // javac and most tools: File.java:12: error: message
+    private static final Pattern FILE_LINE = Pattern.compile(TASK
+            + "((?:[A-Za-z]:)?[^:\\s][^:]*\\.\\w+):(\\d+):(?:\\d+:)?\\s*(?:(error|warning)\\s*:\\s*)?(.*)$",
+            Pattern.CASE_INSENSITIVE);
+    // Eclipse compiler: 1. ERROR in /path/File.java (at line 12), the message comes below the source and caret lines
+    private static final Pattern ECJ = Pattern.compile(TASK + "\\d+\\. (ERROR|WARNING) in (.+?) \\(at line (\\d+)\\)");
+    private static final Pattern ECJ_CARET = Pattern.compile(TASK + "\\^+\\s*$");
+    // validators and packagers: [ERROR] message, ERROR: message
+    private static final Pattern SEVERITY = Pattern.compile(TASK
+            + "(?:\\[(ERROR|WARNING|WARN)\\]|(ERROR|WARNING|WARN)\\s*:)\\s*(.*)$");
+
+    private final String step;
+    private final Charset charset;
+    private final List<Problem> problems = new ArrayList<Problem>();
+    private int errors;
+    private int warnings;
+
+    private String[] ecj;
+    private int ecjLines;
+    private boolean ecjCaret;
+
+    public ProblemExtractor(String step, Charset charset) {
+        this.step = step;
+        this.charset = charset;
+    }
+
+    /**
+     * Parses a line of output.
+     * 
+     * @param len
+     *            length of the line without line terminators
+     */
+    public void line(byte[] b, int len) {
+        if (ecj != null) {
+            ecjLine(new String(b, 0, len, charset));
+            return;
+        }
+        if (KEYWORDS.match(b, len) < 0)
+            return;
+
+        String line = new String(b, 0, len, charset);
+        Matcher m = ECJ.matcher(line);
+        if (m.find()) {
+            ecj = new String[] { m.group(1), m.group(2), m.group(3) };
+            ecjLines = 0;
+            ecjCaret = false;
+            return;
+        }
+        m = FILE_LINE.matcher(line);
+        if (m.find()) {
+            String severity = m.group(3) != null && m.group(3).equalsIgnoreCase("warning") ? AnnotationRule.WARNING : AnnotationRule.ERROR;
+            add(severity, m.group(1), lineNumber(m.group(2)), m.group(4));
+            return;
+        }
+        m = SEVERITY.matcher(line);
+        if (m.find()) {
+            String severity = m.group(1) != null ? m.group(1) : m.group(2);
+            add(severity.equals("ERROR") ? AnnotationRule.ERROR : AnnotationRule.WARNING, null, 0, m.group(3));
+        }
+    }
+
+    private void ecjLine(String line) {
+        ecjLines++;
+        if (ecjCaret) {
+            finishEcj(line.replaceFirst(TASK, ""));
+        } else if (ECJ_CARET.matcher(line).find()) {
+            ecjCaret = true;
+        } else if (ecjLines >= ECJ_LINES) {
+            finishEcj("");
+        }
+    }
+
+    private void finishEcj(String message) {
+        add(ecj[0].equals("ERROR") ? AnnotationRule.ERROR : AnnotationRule.WARNING, ecj[1], lineNumber(ecj[2]), message);
+        ecj = null;
+    }
+
+    /**
+     * Parses a captured line number. A number too large for a line, like a
+     * time stamp, gives 0: the problem is kept without its line.
+     */
+    private static int lineNumber(String digits) {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void add(String severity, String file, int line, String message) {
+        if (severity.equals(AnnotationRule.ERROR))
+            errors++;
+        else
+            warnings++;
+        if (problems.size() >= MAX_PROBLEMS)
+            return;
+        message = message.trim();
+        if (message.length() > MAX_MESSAGE)
+            message = message.substring(0, MAX_MESSAGE) + "...";
+        problems.add(new Problem(step, severity, file, line, message));
+    }
+
+    /**
+     * Ends the output, recording an Eclipse compiler problem still waiting
+     * for its message.
+     */
+    public void finish() {
+        if (ecj != null)
+            finishEcj("");
+    }
+
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Gets the count of errors, those not kept included.
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the count of warnings, those not kept included.
+     */
+    public int getWarnings() {
+        return warnings;
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.tibco.Messages;
+
+/**
+ * Problems found in the consoles of the TIBCO steps of a build by
+ * {@link ProblemExtractor}, indexed by file and filtered by severity, file
+ * and text.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class ProblemReportAction implements Action {
+
+    private final List<Problem> problems = new ArrayList<Problem>();
+    private int errors;
+    private int warnings;
+    private boolean truncated;
+
+    private transient Map<String, List<Problem>> byFile;
+
+    public String getIconFileName() {
+        return errors > 0 ? "red.png" : "yellow.png";
+    }
+
+    public String getDisplayName() {
+        return Messages.ProblemReportDisplayName(errors, warnings);
+    }
+
+    public String getUrlName() {
+        return "tibcoProblems";
+    }
+
+    /**
+     * Adds the problems of a step to a build.
+     */
+    public static void add(AbstractBuild<?, ?> build, ProblemExtractor extractor) {
+        if (extractor.getErrors() + extractor.getWarnings() == 0)
+            return;
+        ProblemReportAction a;
+        synchronized (build) {
+            a = build.getAction(ProblemReportAction.class);
+            if (a == null) {
+                a = new ProblemReportAction();
+                build.addAction(a);
+            }
+        }
+        synchronized (a) {
+            a.problems.addAll(extractor.getProblems());
+            a.errors += extractor.getErrors();
+            a.warnings += extractor.getWarnings();
+            a.truncated |= extractor.getProblems().size() < extractor.getErrors() + extractor.getWarnings();
+            a.byFile = null;
+        }
+    }
+
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    public synchronized int getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Whether some problems were counted but not kept.
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    public synchronized List<Problem> getProblems() {
+        return Collections.unmodifiableList(new ArrayList<Problem>(problems));
+    }
+
+    /**
+     * Gets the problems with the given severity and file, whose message
+     * contains the given text. Null or empty criteria match everything.
+     */
+    public synchronized List<Problem> filter(String severity, String file, String text) {
+        severity = Util.fixEmpty(severity);
+        text = Util.fixEmpty(text);
+        List<Problem> candidates = Util.fixEmpty(file) == null ? problems : index().get(file);
+        List<Problem> matches = new ArrayList<Problem>();
+        if (candidates == null)
+            return matches;
+        for (Problem p : candidates) {
+            if (severity != null && !severity.equals(p.getSeverity()))
+                continue;
+            if (text != null && !p.getMessage().contains(text))
+                continue;
+            matches.add(p);
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the files with problems, the ones with the most errors first.
+     */
+    public synchronized List<FileProblems> getFiles() {
+        List<FileProblems> files = new ArrayList<FileProblems>();
+        for (Map.Entry<String, List<Problem>> e : index().entrySet())
+            files.add(new FileProblems(e.getKey(), e.getValue()));
+        Collections.sort(files, new Comparator<FileProblems>() {
+            public int compare(FileProblems a, FileProblems b) {
+                if (a.getErrors() != b.getErrors())
+                    return b.getErrors() - a.getErrors();
+                return a.getFile().compareTo(b.getFile());
+            }
+        });
+        return files;
+    }
+
+    private Map<String, List<Problem>> index() {
+        if (byFile == null) {
+            Map<String, List<Problem>> index = new LinkedHashMap<String, List<Problem>>();
+            for (Problem p : problems) {
+                if (p.getFile() == null)
+                    continue;
+                List<Problem> l = index.get(p.getFile());
+                if (l == null)
+                    index.put(p.getFile(), l = new ArrayList<Problem>());
+                l.add(p);
+            }
+            byFile = index;
+        }
+        return byFile;
+    }
+
+    /**
+     * Counts of the problems of one file.
+     */
+    public static final class FileProblems {
+        private final String file;
+        private int errors;
+        private int warnings;
+
+        FileProblems(String file, List<Problem> problems) {
+            this.file = file;
+            for (Problem p : problems) {
+                if (AnnotationRule.ERROR.equals(p.getSeverity()))
+                    errors++;
+                else
+                    warnings++;
+            }
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * Gets the file encoded for a query parameter.
+         */
+        public String getEncodedFile() {
+            try {
+                return URLEncoder.encode(file, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public int getWarnings() {
+            return warnings;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link AnnotationRule}s compiled into one {@link AhoCorasick} automaton,
+ * with the note of each rule encoded once. When several rules match a line,
+ * the first one wins.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class RuleSet {
+
+    public static final RuleSet EMPTY = new RuleSet(Collections.<AnnotationRule> emptyList());
+
+    private final AhoCorasick automaton;
+    private final EncodedNote[] notes;
+
+    public RuleSet(List<AnnotationRule> rules) {
+        List<byte[]> patterns = new ArrayList<byte[]>();
+        List<EncodedNote> encoded = new ArrayList<EncodedNote>();
+        for (AnnotationRule r : rules) {
+            if (r.getPattern() == null)
+                continue;
+            try {
+                patterns.add(r.getPattern().getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+            encoded.add(new EncodedNote(new RuleNote(r.getSeverity())));
+        }
+        this.automaton = patterns.isEmpty() ? null : new AhoCorasick(patterns);
+        this.notes = encoded.toArray(new EncodedNote[encoded.size()]);
+    }
+
+    /**
+     * Gets the note of the first rule matching a line.
+     * 
+     * @return null if no rule matches
+     */
+    public EncodedNote match(byte[] b, int len) {
+        if (automaton == null)
+            return null;
+        int i = automaton.match(b, len);
+        return i < 0 ? null : notes[i];
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming reader of TIBCO installer <tt>*_prodInfo.xml</tt> files. It pulls
+ * the install location and version of an executable in a single pass and stops
+ * reading as soon as the element holding them is found, so no DOM is built.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+final class ProdInfoParser {
+
+    private static final String AMX_FEATURE = "sds-core";
+    private static final String AMX_ASSEMBLY = "product_tibco_com_tibco_amx_eclipse_ant";
+    private static final String BE_PRODUCT = "TIBCO BusinessEvents";
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    }
+
+    private ProdInfoParser() {
+    }
+
+    /**
+     * Reads <tt>installLocation</tt> and <tt>version</tt> of the amx_eclipse_ant
+     * assembly of the <tt>sds-core</tt> installer feature.
+     * 
+     * @return the two attributes, or null if the assembly is not there
+     */
+    static String[] readAmxEclipseAnt(File prodInfo) throws IOException, XMLStreamException {
+        InputStream in = new BufferedInputStream(new FileInputStream(prodInfo));
+        XMLStreamReader r = null;
+        try {
+            r = FACTORY.createXMLStreamReader(in);
+            boolean inFeature = false;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if (name.equals("installerFeature")) {
+                        inFeature = AMX_FEATURE.equals(r.getAttributeValue(null, "name"));
+                    } else if (inFeature && name.equals("assembly")
+                            && AMX_ASSEMBLY.equals(r.getAttributeValue(null, "uid"))) {
+                        return new String[] { attribute(r, "installLocation"), attribute(r, "version") };
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && r.getLocalName().equals("installerFeature")) {
+                    inFeature = false;
+                }
+            }
+            return null;
+        } finally {
+            close(r, in);
+        }
+    }
+
+    /**
+     * Reads <tt>installDir</tt> and <tt>version</tt> of the BusinessEvents
+     * product definition.
+     * 
+     * @return the two attributes, or null if the product is not there
+     */
+    static String[] readBusinessEvents(File prodInfo) throws IOException, XMLStreamException {
+        InputStream in = new BufferedInputStream(new FileInputStream(prodInfo));
+        XMLStreamReader r = null;
+        try {
+            r = FACTORY.createXMLStreamReader(in);
+            while (r.hasNext()) {
+                if (r.next() == XMLStreamConstants.START_ELEMENT
+                        && r.getLocalName().equals("productDef")
+                        && BE_PRODUCT.equals(r.getAttributeValue(null, "compatDisplayName"))) {
+                    return new String[] { attribute(r, "installDir"), attribute(r, "version") };
+                }
+            }
+            return null;
+        } finally {
+            close(r, in);
+        }
+    }
+
+    private static String attribute(XMLStreamReader r, String name) {
+        String v = r.getAttributeValue(null, name);
+        return v == null ? "" : v;
+    }
+
+    private static void close(XMLStreamReader r, InputStream in) {
+        try {
+            if (r != null)
+                r.close();
+        } catch (XMLStreamException e) {
+            // ignore
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.tools.ToolInstallation;
+import hudson.tools.ToolInstaller;
+import hudson.tools.ToolInstallerDescriptor;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipFile;
+import org.jenkinsci.plugins.tibco.Messages;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Installs a TIBCO home from an archive already reachable from the node, like
+ * a local file or a shared mount. Archives are unpacked once per node into a
+ * content addressed cache, keyed by the SHA-1 of the archive, and the tool home
+ * points straight into it: provisioning again the same archive, from any
+ * installation, is a no-op. Unpacked archives not installed for
+ * {@link #IDLE_DAYS} days, like the ones of an archive path changed since, are
+ * deleted.
+ * 
+ * <p>
+ * Zip archives are extracted in parallel, tar, tar.gz and tgz ones
+ * sequentially. The format is told by the file name, other names are
+ * rejected.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class TibcoArchiveInstaller extends ToolInstaller {
+
+    /**
+     * Node root relative directory holding the unpacked archives.
+     */
+    public static final String CACHE_DIR = "tibco-archives";
+
+    public static int IDLE_DAYS = Integer.getInteger(TibcoArchiveInstaller.class.getName() + ".idleDays", 30);
+
+    /**
+     * Marks a completely unpacked archive, its time tells when it was last
+     * installed.
+     */
+    private static final String INSTALLED_MARKER = ".tibco-installed";
+
+    private static final String DIGESTS = ".digests";
+
+    /**
+     * Archive path on the node.
+     */
+    private final String archive;
+
+    /**
+     * Optional TIBCO home path inside the archive.
+     */
+    private final String subdir;
+
+    @DataBoundConstructor
+    public TibcoArchiveInstaller(String label, String archive, String subdir) {
+        super(label);
+        this.archive = Util.fixEmptyAndTrim(archive);
+        this.subdir = Util.fixEmptyAndTrim(subdir);
+    }
+
+    public String getArchive() {
+        return archive;
+    }
+
+    public String getSubdir() {
+        return subdir;
+    }
+
+    /**
+     * Archive formats, told apart by the file name.
+     */
+    enum Format {
+        ZIP, TAR_GZ, TAR;
+
+        /**
+         * @return null if the name has none of the supported extensions
+         */
+        static Format of(String name) {
+            String n = name.toLowerCase(Locale.ENGLISH);
+            if (n.endsWith(".zip"))
+                return ZIP;
+            if (n.endsWith(".tar.gz") || n.endsWith(".tgz"))
+                return TAR_GZ;
+            if (n.endsWith(".tar"))
+                return TAR;
+            return null;
+        }
+    }
+
+    @Override
+    public FilePath performInstallation(ToolInstallation tool, Node node, TaskListener log) throws IOException, InterruptedException {
+        FilePath archiveFile = archive == null ? null : node.createPath(archive);
+        if (archiveFile == null || !archiveFile.exists())
+            throw new AbortException(Messages.TibcoArchiveNotFound(archive));
+        if (Format.of(archive) == null)
+            throw new AbortException(Messages.TibcoArchiveUnsupported(archive));
+        FilePath root = node.getRootPath();
+        if (root == null)
+            throw new AbortException(node.getDisplayName() + " is offline");
+
+        FilePath home = new FilePath(archiveFile.getChannel(),
+                archiveFile.act(new Unpack(root.child(CACHE_DIR).getRemote(), log)));
+        return subdir == null ? home : home.child(subdir);
+    }
+
+    /**
+     * Unpacks the archive into the node cache, unless it's already there, and
+     * returns the unpacked directory.
+     */
+    private static final class Unpack implements FileCallable<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final String cacheRoot;
+        private final TaskListener log;
+
+        Unpack(String cacheRoot, TaskListener log) {
+            this.cacheRoot = cacheRoot;
+            this.log = log;
+        }
+
+        public String invoke(File archive, VirtualChannel channel) throws IOException, InterruptedException {
+            File cache = new File(cacheRoot);
+            String digest = digestOf(archive, new File(cache, DIGESTS));
+            File dest = new File(cache, digest);
+            evictIdle(cache, digest);
+            synchronized (digest.intern()) {
+                File marker = new File(dest, INSTALLED_MARKER);
+                if (marker.exists()) {
+                    marker.setLastModified(System.currentTimeMillis());
+                    return dest.getPath();
+                }
+
+                log.getLogger().println(Messages.TibcoArchiveUnpacking(archive, dest));
+                File tmp = new File(cache, digest + ".tmp");
+                Util.deleteRecursive(tmp);
+                if (!tmp.mkdirs())
+                    throw new IOException("Unable to create " + tmp);
+                switch (Format.of(archive.getName())) {
+                case ZIP:
+                    unzip(archive, tmp);
+                    break;
+                case TAR_GZ:
+                    new FilePath(archive).untar(new FilePath(tmp), FilePath.TarCompression.GZIP);
+                    break;
+                default:
+                    new FilePath(archive).untar(new FilePath(tmp), FilePath.TarCompression.NONE);
+                }
+
+                Util.deleteRecursive(dest);
+                if (!tmp.renameTo(dest))
+                    throw new IOException("Unable to rename " + tmp + " to " + dest);
+                FileUtils.touch(new File(dest, INSTALLED_MARKER));
+                return dest.getPath();
+            }
+        }
+    }
+
+    /**
+     * Gets the SHA-1 of the archive content. Hashing a multi-GB archive is
+     * slow, so the digest is remembered for the archive path, size and date.
+     */
+    static String digestOf(File archive, File digests) throws IOException {
+        String stamp = archive.getAbsolutePath() + '|' + archive.length() + '|' + archive.lastModified();
+        File cached = new File(digests, Util.getDigestOf(stamp));
+        if (cached.exists()) {
+            cached.setLastModified(System.currentTimeMillis());
+            return FileUtils.readFileToString(cached).trim();
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage());
+        }
+        InputStream in = new FileInputStream(archive);
+        try {
+            byte[] buf = new byte[64 * 1024];
+            int len;
+            while ((len = in.read(buf)) >= 0)
+                md.update(buf, 0, len);
+        } finally {
+            in.close();
+        }
+        String digest = Util.toHexString(md.digest());
+        FileUtils.writeStringToFile(cached, digest);
+        return digest;
+    }
+
+    /**
+     * Deletes the unpacked archives, and the remembered digests, not used for
+     * {@link #IDLE_DAYS} days, but the one being installed. A directory
+     * without marker is an unpack in progress, or one that failed, and is
+     * judged by its own time.
+     */
+    static void evictIdle(File cache, String digest) throws IOException {
+        long limit = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(IDLE_DAYS);
+        File[] all = cache.listFiles();
+        if (all == null)
+            return;
+        for (File d : all) {
+            if (d.getName().equals(DIGESTS)) {
+                File[] digests = d.listFiles();
+                if (digests != null) {
+                    for (File f : digests) {
+                        if (f.lastModified() < limit)
+                            f.delete();
+                    }
+                }
+                continue;
+            }
+            if (d.getName().equals(digest) || d.getName().equals(digest + ".tmp"))
+                continue;
+            File marker = new File(d, INSTALLED_MARKER);
+            if ((marker.exists() ? marker.lastModified() : d.lastModified()) < limit)
+                Util.deleteRecursive(d);
+        }
+    }
+
+    /**
+     * Extracts a zip file, spreading the entries over as many threads as there
+     * are cores.
+     */
+    static void unzip(File archive, final File dir) throws IOException, InterruptedException {
+        final ZipFile zip = new ZipFile(archive);
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory());
+        try {
+            // with the separator, so that a sibling like dir-evil doesn't pass for dir
+            String base = dir.getCanonicalPath();
+            String root = base + File.separator;
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            Enumeration<ZipEntry> entries = zip.getEntries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry e = entries.nextElement();
+                final File f = new File(dir, e.getName());
+                String path = f.getCanonicalPath();
+                if (!path.startsWith(root) && !path.equals(base))
+                    throw new IOException("Illegal entry " + e.getName() + " in " + archive);
+                if (e.isDirectory()) {
+                    f.mkdirs();
+                    continue;
+                }
+                futures.add(pool.submit(new Callable<Void>() {
+                    public Void call() throws IOException, InterruptedException {
+                        f.getParentFile().mkdirs();
+                        InputStream in = zip.getInputStream(e);
+                        OutputStream out = new FileOutputStream(f);
+                        try {
+                            IOUtils.copy(in, out);
+                        } finally {
+                            IOUtils.closeQuietly(in);
+                            out.close();
+                        }
+                        int mode = e.getUnixMode() & 0777;
+                        if (mode != 0)
+                            new FilePath(f).chmod(mode);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException x) {
+                    throw (IOException) new IOException("Failed to extract " + archive).initCause(x.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            zip.close();
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends ToolInstallerDescriptor<TibcoArchiveInstaller> {
+
+        @Override
+        public String getDisplayName() {
+            return Messages.TibcoArchiveInstallerDisplayName();
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends ToolInstallation> toolType) {
+            return toolType == TibcoInstallation.class;
+        }
+
+        public FormValidation doCheckArchive(@QueryParameter String value) {
+            if (Util.fixEmptyAndTrim(value) != null && Format.of(value.trim()) == null)
+                return FormValidation.error(Messages.TibcoArchiveUnsupported(value));
+            return FormValidation.validateRequired(value);
+        }
+    }
+}
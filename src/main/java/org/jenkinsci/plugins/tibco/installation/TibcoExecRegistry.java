@@ -0,0 +1,189 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import hudson.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+
+/**
+ * Index of every TIBCO executable installed under a TIBCO home, built from
+ * all the <tt>*_prodInfo.xml</tt> files found in <tt>_installInfo</tt>.
+ * Several versions of the same product can live side by side in one home,
+ * builders pick one of them by version or default to the newest.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TibcoExecRegistry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String AMX_ECLIPSE_ANT = "amx_eclipse_ant";
+    public static final String STUDIO_TOOLS = "studio-tools";
+
+    static final String AMX_PRODINFO = "amx-design_*_prodInfo.xml";
+    static final String BE_PRODINFO = "businessevents-standard_*_prodInfo.xml";
+
+    private static final ExecutorService SCANNER = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), new DaemonThreadFactory());
+
+    private final List<TibcoExecVersion> versions;
+
+    TibcoExecRegistry(List<TibcoExecVersion> versions) {
+        List<TibcoExecVersion> sorted = new ArrayList<TibcoExecVersion>(versions);
+        Collections.sort(sorted);
+        this.versions = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * All the executables, newest first.
+     */
+    public List<TibcoExecVersion> getVersions() {
+        return versions;
+    }
+
+    /**
+     * All the executables of a product, newest first.
+     */
+    public List<TibcoExecVersion> getVersions(String product) {
+        List<TibcoExecVersion> r = new ArrayList<TibcoExecVersion>();
+        for (TibcoExecVersion v : versions) {
+            if (v.getProduct().equals(product))
+                r.add(v);
+        }
+        return r;
+    }
+
+    /**
+     * Finds the executable of a product.
+     * 
+     * @param version
+     *            the pinned version, or null for the newest one
+     * @return null if there's no such executable
+     */
+    public TibcoExecVersion find(String product, String version) {
+        for (TibcoExecVersion v : versions) {
+            if (v.getProduct().equals(product)
+                    && (version == null || version.equals(v.getExecVersion())))
+                return v;
+        }
+        return null;
+    }
+
+    /**
+     * Scans the <tt>_installInfo</tt> directory of home, parsing the prodInfo
+     * files in parallel.
+     */
+    public static TibcoExecRegistry scan(final String home) {
+        File installInfo = new File(home, "_installInfo");
+        List<Callable<TibcoExecVersion>> tasks = new ArrayList<Callable<TibcoExecVersion>>();
+        for (final File f : list(installInfo, AMX_PRODINFO)) {
+            tasks.add(new Callable<TibcoExecVersion>() {
+                public TibcoExecVersion call() throws Exception {
+                    String[] info = ProdInfoParser.readAmxEclipseAnt(f);
+                    if (info == null)
+                        return null;
+                    return newVersion(AMX_ECLIPSE_ANT, info[0], info[1]);
+                }
+            });
+        }
+        for (final File f : list(installInfo, BE_PRODINFO)) {
+            tasks.add(new Callable<TibcoExecVersion>() {
+                public TibcoExecVersion call() throws Exception {
+                    String[] info = ProdInfoParser.readBusinessEvents(f);
+                    if (info == null || info[0].length() == 0)
+                        return null;
+                    return newVersion(STUDIO_TOOLS, home + "/" + info[0] + "/studio/bin", info[1]);
+                }
+            });
+        }
+
+        List<TibcoExecVersion> versions = new ArrayList<TibcoExecVersion>();
+        if (tasks.size() == 1) {
+            add(versions, tasks.get(0));
+        } else {
+            List<Future<TibcoExecVersion>> futures = new ArrayList<Future<TibcoExecVersion>>();
+            for (Callable<TibcoExecVersion> t : tasks)
+                futures.add(SCANNER.submit(t));
+            for (Future<TibcoExecVersion> f : futures) {
+                try {
+                    TibcoExecVersion v = f.get();
+                    if (v != null)
+                        versions.add(v);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Unable to read TIBCO product info in " + installInfo, e.getCause());
+                }
+            }
+        }
+        return new TibcoExecRegistry(versions);
+    }
+
+    private static void add(List<TibcoExecVersion> versions, Callable<TibcoExecVersion> task) {
+        try {
+            TibcoExecVersion v = task.call();
+            if (v != null)
+                versions.add(v);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Unable to read TIBCO product info", e);
+        }
+    }
+
+    private static TibcoExecVersion newVersion(String product, String installPath, String version) {
+        if (installPath.length() == 0)
+            return null;
+        return new TibcoExecVersion(product, installPath, product, version.length() == 0 ? "0" : version);
+    }
+
+    private static File[] list(File installInfo, String pattern) {
+        File[] files = installInfo.listFiles((FileFilter) new WildcardFileFilter(pattern));
+        return files == null ? new File[0] : files;
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(TibcoExecRegistry.class.getName());
+}
@@ -23,6 +23,11 @@
  */
 package org.jenkinsci.plugins.tibco.installation;
 
+import hudson.Functions;
+import hudson.util.VersionNumber;
+
+import java.io.File;
+import java.io.Serializable;
 
 /**
  * @author Federico Pastore - federico.pastore@gmail.com
@@ -38,17 +43,21 @@ package org.jenkinsci.plugins.tibco.installation;
  * owners.
  * 
  */
-public class TibcoExecVersion {
+public class TibcoExecVersion implements Serializable, Comparable<TibcoExecVersion> {
+
+	private static final long serialVersionUID = 1L;
 
-	private String id;
-	private String installPath;
-	private String execName;
-	private String execVersion;
-	private String description;
+	private final String id;
+	private final String product;
+	private final String installPath;
+	private final String execName;
+	private final String execVersion;
+	private final String description;
 
-	public TibcoExecVersion(int i, String installPath, String execName,
+	public TibcoExecVersion(String product, String installPath, String execName,
 			String execVersion) {
-		this.id= "i";
+		this.id= product.concat("-").concat(execVersion);
+		this.product= product;
 		this.installPath= installPath;
 		this.execName = execName;
 		this.execVersion= execVersion;
@@ -59,8 +68,41 @@ public class TibcoExecVersion {
 		return id;
 	}
 
+	/**
+	 * Product this executable belongs to, one of the {@link TibcoExecRegistry} product constants.
+	 */
+	public String getProduct() {
+		return product;
+	}
+
+	public String getInstallPath() {
+		return installPath;
+	}
+
+	public String getExecName() {
+		return execName;
+	}
+
+	public String getExecVersion() {
+		return execVersion;
+	}
+
 	public String getDescription() {
 		return description;
 	}
 
+	/**
+	 * Gets the executable file, adding the windows extension when needed.
+	 */
+	public File getExecutable() {
+		return new File(installPath, Functions.isWindows() ? execName.concat(".exe") : execName);
+	}
+
+	/**
+	 * Newest versions first.
+	 */
+	public int compareTo(TibcoExecVersion o) {
+		return new VersionNumber(o.execVersion).compareTo(new VersionNumber(execVersion));
+	}
+
 }
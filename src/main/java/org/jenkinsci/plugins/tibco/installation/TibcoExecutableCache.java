@@ -0,0 +1,184 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Agent side cache of the {@link TibcoExecRegistry} of each TIBCO home.
+ * Entries are only valid as long as the modification stamp of the
+ * <tt>_installInfo</tt> directory, of the files it contains and of the
+ * directories of the resolved executables is unchanged, so installing, patching
+ * or removing a product invalidates them.
+ * 
+ * <p>
+ * Stamps are not checked on lookups: a background watcher re-checks every
+ * cached home every {@link #CHECK_INTERVAL} milliseconds and drops the changed
+ * ones, so lookups don't touch the file system at all. Setting the interval to
+ * 0 checks the stamp on every lookup instead.
+ * 
+ * <p>
+ * This class lives in the JVM that runs the lookup, so every node keeps its own
+ * copy.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TibcoExecutableCache {
+
+    /**
+     * How often the watcher checks the cached homes, in milliseconds.
+     */
+    public static long CHECK_INTERVAL = Long.getLong(TibcoExecutableCache.class.getName() + ".checkInterval", 5000);
+
+    private static final ConcurrentMap<String, Entry> CACHE = new ConcurrentHashMap<String, Entry>();
+
+    private static Timer watcher;
+
+    private TibcoExecutableCache() {
+    }
+
+    /**
+     * Returns the registry of home, scanning the installation only if it's not
+     * cached or if it changed since it was cached.
+     */
+    public static TibcoExecRegistry registryFor(String home) {
+        Entry e = CACHE.get(home);
+        if (e != null && (CHECK_INTERVAL > 0 || e.stamp == stampOf(home, e.registry)))
+            return e.registry;
+        TibcoExecRegistry registry = TibcoExecRegistry.scan(home);
+        CACHE.put(home, new Entry(registry, stampOf(home, registry)));
+        startWatcher();
+        return registry;
+    }
+
+    /**
+     * Drops the cached registry of the given home.
+     */
+    public static void invalidate(String home) {
+        CACHE.remove(home);
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * Drops the entries whose installation changed since they were cached.
+     */
+    static void check() {
+        for (Map.Entry<String, Entry> e : CACHE.entrySet()) {
+            if (e.getValue().stamp != stampOf(e.getKey(), e.getValue().registry))
+                CACHE.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    private static synchronized void startWatcher() {
+        if (watcher != null || CHECK_INTERVAL <= 0)
+            return;
+        watcher = new Timer("TIBCO installation watcher", true);
+        watcher.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    check();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to check TIBCO installations", e);
+                }
+            }
+        }, CHECK_INTERVAL, CHECK_INTERVAL);
+    }
+
+    /**
+     * Computes the modification stamp of a TIBCO home and one of its
+     * executables, changed by any install or hotfix touching them.
+     */
+    public static long stampOf(String home, File exe) {
+        long stamp = stampOf(installInfo(home));
+        stamp = 31 * stamp + exe.lastModified();
+        return 31 * stamp + exe.length();
+    }
+
+    static File installInfo(String home) {
+        return new File(home, "_installInfo");
+    }
+
+    /**
+     * Computes the modification stamp of a TIBCO home from its
+     * <tt>_installInfo</tt> directory and the directories of its executables.
+     * Only file metadata is read, never file contents.
+     */
+    static long stampOf(String home, TibcoExecRegistry registry) {
+        long stamp = stampOf(installInfo(home));
+        for (TibcoExecVersion v : registry.getVersions()) {
+            File exe = v.getExecutable();
+            stamp = 31 * stamp + exe.getParentFile().lastModified();
+            stamp = 31 * stamp + exe.lastModified();
+            stamp = 31 * stamp + exe.length();
+        }
+        return stamp;
+    }
+
+    /**
+     * Computes the modification stamp of an <tt>_installInfo</tt> directory.
+     */
+    static long stampOf(File installInfo) {
+        File[] files = installInfo.listFiles();
+        if (files == null)
+            return -1;
+        long stamp = installInfo.lastModified();
+        for (File f : files) {
+            stamp = 31 * stamp + f.getName().hashCode();
+            stamp = 31 * stamp + f.lastModified();
+            stamp = 31 * stamp + f.length();
+        }
+        return stamp;
+    }
+
+    private static final class Entry {
+        private final TibcoExecRegistry registry;
+        private final long stamp;
+
+        Entry(TibcoExecRegistry registry, long stamp) {
+            this.registry = registry;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(TibcoExecutableCache.class.getName());
+}
@@ -0,0 +1,149 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import hudson.model.Computer;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Master side scanner of TIBCO homes used by the configuration pages. Scans
+ * run in the background on {@link Computer#threadPoolForRemoting} and their
+ * results are shared by every form check and page render for a short while,
+ * so a slow file system never ties up request threads.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+final class TibcoHomeScanner {
+
+    /**
+     * How long a scan result is reused, in milliseconds.
+     */
+    static long TTL = Long.getLong(TibcoHomeScanner.class.getName() + ".ttl", TimeUnit.SECONDS.toMillis(30));
+
+    private static final ConcurrentMap<String, Entry> SCANS = new ConcurrentHashMap<String, Entry>();
+
+    private TibcoHomeScanner() {
+    }
+
+    /**
+     * Gets the scan of home, starting one if there's none or if it expired.
+     * 
+     * @param wait
+     *            how long to wait for a running scan, in milliseconds
+     * @return null if the scan is still running
+     */
+    static Scan get(final String home, long wait) {
+        Entry e = SCANS.get(home);
+        if (e == null || e.isExpired()) {
+            Entry fresh = new Entry(Computer.threadPoolForRemoting.submit(new Callable<Scan>() {
+                public Scan call() throws Exception {
+                    return scan(home);
+                }
+            }));
+            if (e == null ? SCANS.putIfAbsent(home, fresh) == null : SCANS.replace(home, e, fresh))
+                e = fresh;
+            else
+                e = SCANS.get(home);
+        }
+        try {
+            return wait > 0 ? e.scan.get(wait, TimeUnit.MILLISECONDS) : e.scan.isDone() ? e.scan.get() : null;
+        } catch (TimeoutException x) {
+            return null;
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException x) {
+            LOGGER.log(Level.WARNING, "Unable to scan TIBCO home " + home, x.getCause());
+            SCANS.remove(home, e);
+            return new Scan(false, null, false, false);
+        }
+    }
+
+    private static Scan scan(String home) {
+        if (!new File(home).isDirectory())
+            return new Scan(false, null, false, false);
+        TibcoExecRegistry registry = TibcoExecutableCache.registryFor(home);
+        return new Scan(true, registry,
+                exists(registry.find(TibcoExecRegistry.AMX_ECLIPSE_ANT, null)),
+                exists(registry.find(TibcoExecRegistry.STUDIO_TOOLS, null)));
+    }
+
+    private static boolean exists(TibcoExecVersion v) {
+        return v != null && v.getExecutable().exists();
+    }
+
+    /**
+     * Outcome of a TIBCO home scan.
+     */
+    static final class Scan {
+        final boolean directory;
+        final TibcoExecRegistry registry;
+        final boolean amxEclipseAntExists;
+        final boolean studioToolsExists;
+
+        Scan(boolean directory, TibcoExecRegistry registry, boolean amxEclipseAntExists, boolean studioToolsExists) {
+            this.directory = directory;
+            this.registry = registry;
+            this.amxEclipseAntExists = amxEclipseAntExists;
+            this.studioToolsExists = studioToolsExists;
+        }
+
+        boolean isTibcoHome() {
+            return registry != null && !registry.getVersions().isEmpty();
+        }
+    }
+
+    private static final class Entry {
+        private final Future<Scan> scan;
+        private final long started = System.currentTimeMillis();
+
+        Entry(Future<Scan> scan) {
+            this.scan = scan;
+        }
+
+        boolean isExpired() {
+            return scan.isDone() && System.currentTimeMillis() - started > TTL;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(TibcoHomeScanner.class.getName());
+}
@@ -26,7 +26,6 @@ package org.jenkinsci.plugins.tibco.installation;
 import hudson.CopyOnWrite;
 import hudson.EnvVars;
 import hudson.Extension;
-import hudson.Functions;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractBuild;
@@ -35,34 +34,31 @@ import hudson.model.EnvironmentSpecific;
 import hudson.model.TaskListener;
 import hudson.model.Node;
 import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
 import hudson.slaves.NodeSpecific;
+import hudson.tools.InstallSourceProperty;
 import hudson.tools.ToolDescriptor;
+import hudson.tools.ToolInstaller;
 import hudson.tools.ToolProperty;
 import hudson.tools.ToolInstallation;
 import hudson.util.FormValidation;
 import hudson.util.XStream2;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-
 import jenkins.model.Jenkins;
 
-import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder;
+import org.jenkinsci.plugins.tibco.Messages;
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder.DescriptorImpl;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
-import org.xml.sax.InputSource;
 
 /**
  * 
@@ -111,134 +107,172 @@ EnvironmentSpecific<TibcoInstallation>, NodeSpecific<TibcoInstallation>{
     }
 
     public TibcoInstallation forNode(Node node, TaskListener log) throws IOException, InterruptedException {
-        return new TibcoInstallation(getName(), translateFor(node, log), getProperties().toList());
+        // installers must run for every build, to pick up a new archive
+        if (hasInstallers())
+            return new TibcoInstallation(getName(), translateFor(node, log), getProperties().toList());
+        TibcoInstallation translated = TibcoNodeResolutions.get(node, this);
+        if (translated == null) {
+            // not warmed up yet, or the tool location of the node changed since
+            translated = new TibcoInstallation(getName(), translateFor(node, log), getProperties().toList());
+            TibcoNodeResolutions.put(node, this, translated);
+        }
+        return translated;
+    }
+
+    /**
+     * Tells whether the home is installed by a {@link ToolInstaller}, and so
+     * may change whenever the installation is translated for a node.
+     */
+    boolean hasInstallers() {
+        return getProperties().get(InstallSourceProperty.class) != null;
     }
 
     
 	public String getAmxEclipseAntExecutable(Launcher launcher) throws IOException, InterruptedException {
-		return launcher.getChannel().call(new Callable<String,IOException>() {
-            public String call() throws IOException {
-                File exe = getAmxEclipseAntExeFile();
-                if(exe.exists())
-                    return exe.getPath();
-                return null;
-            }
-        });
+		return getAmxEclipseAntExecutable(launcher, null);
 	}
-    
+
+	/**
+     * Gets the amx_eclipse_ant executable path of the given version on the given target system.
+     * 
+     * @param version the pinned version, or null for the newest one
+     */
+	public String getAmxEclipseAntExecutable(Launcher launcher, String version) throws IOException, InterruptedException {
+		return getExecutable(launcher, TibcoExecRegistry.AMX_ECLIPSE_ANT, version);
+	}
+
 	/**
      * Gets the executable path of this Tibco installation  on the given target system.
      */
     public String getStudioToolsExecutable(Launcher launcher) throws IOException, InterruptedException {
-        return launcher.getChannel().call(new Callable<String,IOException>() {
-            public String call() throws IOException {
-                File exe = getStudioToolsExeFile();
-                if(exe.exists())
-                    return exe.getPath();
-                return null;
-            }
-        });
+        return getStudioToolsExecutable(launcher, null);
     }
 
-    private File getAmxEclipseAntExeFile() {
-        String execName = Functions.isWindows() ? "amx_eclipse_ant.exe" : "amx_eclipse_ant";
-        String home = Util.replaceMacro(getHome(), EnvVars.masterEnvVars);
-        File exec = findTibcoExecutable(home,execName);
-        
-        return exec;
+	/**
+     * Gets the studio-tools executable path of the given version on the given target system.
+     * 
+     * @param version the pinned version, or null for the newest one
+     */
+    public String getStudioToolsExecutable(Launcher launcher, String version) throws IOException, InterruptedException {
+        return getExecutable(launcher, TibcoExecRegistry.STUDIO_TOOLS, version);
+    }
+
+    private String getExecutable(Launcher launcher, String product, String version) throws IOException, InterruptedException {
+        return resolve(launcher, product, version, null).getExecutable();
+    }
+
+    /**
+     * Resolves home, executable, default TRA and build file on the target
+     * system in a single round trip.
+     * 
+     * @param product one of the {@link TibcoExecRegistry} product constants
+     * @param version the pinned version, or null for the newest one
+     * @param buildFile optional build file path, relative to the bases
+     * @param buildFileBases directories where the build file is looked up, in order
+     */
+    public TibcoResolution resolve(Launcher launcher, String product, String version, String buildFile, String... buildFileBases) throws IOException, InterruptedException {
+        return resolve(launcher.getChannel(), product, version, buildFile, buildFileBases);
     }
 
-    private File getStudioToolsExeFile() {
-        String execName = Functions.isWindows() ? "studio-tools.exe" : "studio-tools";
+    /**
+     * Same as {@link #resolve(Launcher, String, String, String, String...)} over the given channel.
+     */
+    public TibcoResolution resolve(VirtualChannel channel, String product, String version, String buildFile, String... buildFileBases) throws IOException, InterruptedException {
+        return channel.call(new ResolveCallable(getHome(), product, version, buildFile, buildFileBases));
+    }
+
+    /**
+     * Lists the executables of a product installed in this home, as seen from the master.
+     * The list is empty while the home is still being scanned.
+     */
+    public List<TibcoExecVersion> getExecVersions(String product) {
         String home = Util.replaceMacro(getHome(), EnvVars.masterEnvVars);
-        File exec = findTibcoExecutable(home,execName);
-        return exec;
+        TibcoHomeScanner.Scan scan = TibcoHomeScanner.get(home, DescriptorImpl.CHECK_WAIT);
+        if(scan==null || scan.registry==null)
+            return Collections.emptyList();
+        return scan.registry.getVersions(product);
     }
-    
+
     /**
-     * find Tibco executable fo exec name. actually it finds only ant wrapper
-     * TODO add a registry wher lookup for exec name and version
+     * find Tibco executable for product and version through the node {@link TibcoExecRegistry}.
      * @param home
-     * @param execName
-     * @return File executable
+     * @param product
+     * @param version null for the newest one
+     * @return the executable, or null
      */
-    private File findTibcoExecutable(String home, String execName) {
-    	String installPath="";
-    	File installInfo= new File(home, "_installInfo");
-    	if(execName.startsWith("amx_eclipse_ant")){
-    	
-		WildcardFileFilter filter =new WildcardFileFilter("amx-design_*_prodInfo.xml");
-		String [] list =installInfo.list(filter);
-		
-	    javax.xml.xpath.XPathFactory xpathFactory = javax.xml.xpath.XPathFactory.newInstance();
-	    XPath xpath = xpathFactory.newXPath();
-	    
-	    try {
-	    		//for(int i = 0; i<list.length;i++){
-				InputSource source = new InputSource(new FileInputStream(new File(installInfo,list[0])));//TODO add combo with more exec version for installation
-				installPath= (String)xpath.evaluate("/TIBCOInstallerFeatures/installerFeature[@name=\"sds-core\"]/assemblyList/assembly[@uid=\"product_tibco_com_tibco_amx_eclipse_ant\"]/@installLocation", source,XPathConstants.STRING);
-				//String execVersion= (String)xpath.evaluate("/TIBCOInstallerFeatures/installerFeature[@name=\"sds-core\"]/assemblyList/assembly[@uid=\"product_tibco_com_tibco_amx_eclipse_ant\"]/@version", source,XPathConstants.STRING);
-				//TibcoExecVersion version = new TibcoExecVersion(i, installPath, execName, execVersion);
-				//this.addTibcoExecVersion(version);
-	    		//}
-	    } catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (XPathExpressionException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+    private static TibcoExecVersion findTibcoExecutable(String home, String product, String version) {
+        return TibcoExecutableCache.registryFor(home).find(product, version);
     }
-    else{//TODO fixme it doesn't really good. i need to find a way to lookup a studio tools installation
-    	
-    	WildcardFileFilter filter =new WildcardFileFilter("businessevents-standard_*_prodInfo.xml");
-		String [] list =installInfo.list(filter);
-		
-
-	    javax.xml.xpath.XPathFactory xpathFactory = javax.xml.xpath.XPathFactory.newInstance();
-	    XPath xpath = xpathFactory.newXPath();
-	    
-	    try {
-	    	//for(int i = 0; i<list.length;i++){
-	    		installPath+=getHome();
-	    		installPath+="/";
-				InputSource source = new InputSource(new FileInputStream(new File(installInfo,list[0])));
-				installPath+= (String)xpath.evaluate("/TIBCOInstallerFeatures/productDef[@compatDisplayName=\"TIBCO BusinessEvents\"]/@installDir", source,XPathConstants.STRING);
-				installPath+="/studio/bin";			
-				//String execVersion ="5.1";//(String)xpath.evaluate("/TIBCOInstallerFeatures/productDef/featureConfigInclude/include[@id=\"be-studio\"]/@version", source,XPathConstants.STRING);
-				//TibcoExecVersion version = new TibcoExecVersion(i, installPath, execName, execVersion);
-				//this.addTibcoExecVersion(version);
-	    	//}
-	    } catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (XPathExpressionException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+
+    private static final class ResolveCallable implements Callable<TibcoResolution,IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String home;
+        private final String product;
+        private final String version;
+        private final String buildFile;
+        private final String[] buildFileBases;
+
+        ResolveCallable(String home, String product, String version, String buildFile, String[] buildFileBases) {
+            this.home = home;
+            this.product = product;
+            this.version = version;
+            this.buildFile = buildFile;
+            this.buildFileBases = buildFileBases;
+        }
+
+        public TibcoResolution call() throws IOException {
+            String home = Util.replaceMacro(this.home, EnvVars.masterEnvVars);
+            TibcoExecVersion exec = findTibcoExecutable(home, product, version);
+            String exe = null;
+            String tra = null;
+            String execVersion = null;
+            if (exec != null && exec.getExecutable().exists()) {
+                exe = exec.getExecutable().getPath();
+                tra = new File(exec.getInstallPath(), exec.getExecName().concat(".tra")).getPath();
+                execVersion = exec.getExecVersion();
+            }
+            String build = null;
+            if (buildFile != null) {
+                for (String base : buildFileBases) {
+                    File f = new File(buildFile).isAbsolute() ? new File(buildFile) : new File(base, buildFile);
+                    if (f.exists()) {
+                        build = f.getAbsolutePath();
+                        break;
+                    }
+                }
+            }
+            return new TibcoResolution(home, exe, tra, build, execVersion);
+        }
     }
-	    
-		return new File(installPath,execName);
-	}
 
 
 
 	/**
-     * Returns true if the executable exists.
+     * Returns true if the executable exists. The check runs in background on the master,
+     * false is returned until it completes.
      */
     public boolean getAmxEclipseAntExists() throws IOException, InterruptedException {
-        return getAmxEclipseAntExecutable(new Launcher.LocalLauncher(TaskListener.NULL))!=null;
+        TibcoHomeScanner.Scan scan = TibcoHomeScanner.get(Util.replaceMacro(getHome(), EnvVars.masterEnvVars), 0);
+        return scan!=null && scan.amxEclipseAntExists;
     }
 	
 	/**
-     * Returns true if the executable exists.
+     * Returns true if the executable exists. The check runs in background on the master,
+     * false is returned until it completes.
      */
     public boolean getStudioToolsExists() throws IOException, InterruptedException {
-        return getStudioToolsExecutable(new Launcher.LocalLauncher(TaskListener.NULL))!=null;
+        TibcoHomeScanner.Scan scan = TibcoHomeScanner.get(Util.replaceMacro(getHome(), EnvVars.masterEnvVars), 0);
+        return scan!=null && scan.studioToolsExists;
     }
     
     @Extension
     public static class DescriptorImpl extends ToolDescriptor<TibcoInstallation> {
+
+        /**
+         * How long a form check waits for the TIBCO home scan, in milliseconds.
+         */
+        private static final long CHECK_WAIT = 500;
     	
         @CopyOnWrite
         private volatile TibcoInstallation[] installations = new TibcoInstallation[0];
@@ -256,6 +290,7 @@ EnvironmentSpecific<TibcoInstallation>, NodeSpecific<TibcoInstallation>{
         @Override
         public void setInstallations(TibcoInstallation... installations) {
             this.installations = installations;
+            TibcoNodeResolutions.clear();
             save();
         }
 
@@ -276,28 +311,21 @@ EnvironmentSpecific<TibcoInstallation>, NodeSpecific<TibcoInstallation>{
             if(value.getPath().equals(""))
                 return FormValidation.ok();
 
-            if(!value.isDirectory())
-                return FormValidation.error("Not a valid directory");//Messages.TibcoAnt_NotADirectory(value));
+            // the scan runs in background and is shared by all the checks of the same home,
+            // if it takes longer than a moment the user gets a warning and can check again later
+            TibcoHomeScanner.Scan scan = TibcoHomeScanner.get(value.getPath(), CHECK_WAIT);
+            if(scan==null)
+                return FormValidation.warning(Messages.TibcoHomeScanInProgress(value));
+
+            if(!scan.directory)
+                return FormValidation.error(Messages.NotADirectory(value));
             
-            if(!isValidTibcoHome(value))
-            	return FormValidation.error("NotATibcoHome");//Messages.TibcoAnt_NotATibcoHome(value));
+            if(!scan.isTibcoHome())
+            	return FormValidation.error(Messages.NotATibcoHome(value));
             
             return FormValidation.ok();
         }
 
-        private boolean isValidTibcoHome(File value) {
-			String home =value.getPath();
-			File installInfo= new File(value, "_installInfo");
-			if(!installInfo.exists() && !installInfo.isDirectory())
-				return false;
-			WildcardFileFilter filter =new WildcardFileFilter("amx-design_*_prodInfo.xml");
-			String [] list =installInfo.list(filter);
-			if(list.length==0)
-				return false;
-			
-			return true;
-		}
-
 		public FormValidation doCheckName(@QueryParameter String value) {
             return FormValidation.validateRequired(value);
         }
@@ -0,0 +1,103 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.tools.ToolInstallation;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves every configured {@link TibcoInstallation} as soon as a node comes
+ * online, so the first TIBCO build on that node doesn't pay for node
+ * translation and for the prodInfo scan. The scan result stays in the node
+ * {@link TibcoExecutableCache}, the translation in {@link TibcoNodeResolutions}.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+@Extension
+public class TibcoInstallationWarmer extends ComputerListener {
+
+    public static boolean ENABLED = !Boolean.getBoolean(TibcoInstallationWarmer.class.getName() + ".disabled");
+
+    @Override
+    public void onOnline(final Computer c, final TaskListener listener) throws IOException, InterruptedException {
+        if (!ENABLED)
+            return;
+        // don't hold the node launch, the warm up runs in background
+        Computer.threadPoolForRemoting.submit(new Runnable() {
+            public void run() {
+                warmUp(c, listener);
+            }
+        });
+    }
+
+    @Override
+    public void onOffline(Computer c) {
+        TibcoNodeResolutions.clear(c.getName());
+    }
+
+    private void warmUp(Computer c, TaskListener listener) {
+        Node node = c.getNode();
+        VirtualChannel channel = c.getChannel();
+        if (node == null || channel == null)
+            return;
+        TibcoInstallation.DescriptorImpl descriptor = ToolInstallation.all().get(TibcoInstallation.DescriptorImpl.class);
+        if (descriptor == null)
+            return;
+        for (TibcoInstallation ti : descriptor.getInstallations()) {
+            try {
+                TibcoInstallation translated = new TibcoInstallation(ti.getName(), ti.translateFor(node, listener), ti.getProperties().toList());
+                TibcoResolution amx = translated.resolve(channel, TibcoExecRegistry.AMX_ECLIPSE_ANT, null, null);
+                TibcoResolution be = translated.resolve(channel, TibcoExecRegistry.STUDIO_TOOLS, null, null);
+                if (!ti.hasInstallers())
+                    TibcoNodeResolutions.put(node, ti, translated);
+                LOGGER.log(Level.FINE, "TIBCO installation {0} on {1}: amx_eclipse_ant={2}, studio-tools={3}",
+                        new Object[] { ti.getName(), c.getName(), amx.getExecutable(), be.getExecutable() });
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to resolve TIBCO installation " + ti.getName() + " on " + c.getName(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(TibcoInstallationWarmer.class.getName());
+}
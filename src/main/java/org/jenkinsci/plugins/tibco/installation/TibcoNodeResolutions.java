@@ -0,0 +1,122 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import hudson.model.Node;
+import hudson.tools.ToolLocationNodeProperty;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Per node map of the {@link TibcoInstallation}s already translated for that
+ * node, filled by {@link TibcoInstallationWarmer} when the node comes online
+ * and by {@link TibcoInstallation#forNode}, and consulted by the latter.
+ * 
+ * <p>
+ * Each translation remembers the tool location the node, or the global node
+ * properties, gave for the installation. A translation made for another
+ * location is ignored, so editing the tool location of a node that stays
+ * online takes effect with the next build.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TibcoNodeResolutions {
+
+    private static final ConcurrentMap<String, Map<String, Entry>> NODES = new ConcurrentHashMap<String, Map<String, Entry>>();
+
+    private static final class Entry {
+        private final String location;
+        private final TibcoInstallation translated;
+
+        Entry(String location, TibcoInstallation translated) {
+            this.location = location;
+            this.translated = translated;
+        }
+    }
+
+    private TibcoNodeResolutions() {
+    }
+
+    /**
+     * Gets the installation translated for node, or null if it's not known.
+     */
+    public static TibcoInstallation get(Node node, TibcoInstallation installation) {
+        Map<String, Entry> m = NODES.get(node.getNodeName());
+        Entry e = m == null ? null : m.get(key(installation));
+        return e == null || !e.location.equals(location(node, installation)) ? null : e.translated;
+    }
+
+    static void put(Node node, TibcoInstallation installation, TibcoInstallation translated) {
+        Map<String, Entry> m = NODES.get(node.getNodeName());
+        if (m == null) {
+            NODES.putIfAbsent(node.getNodeName(), new ConcurrentHashMap<String, Entry>());
+            m = NODES.get(node.getNodeName());
+        }
+        m.put(key(installation), new Entry(location(node, installation), translated));
+    }
+
+    /**
+     * Forgets everything known about a node.
+     */
+    public static void clear(String nodeName) {
+        NODES.remove(nodeName);
+    }
+
+    /**
+     * Forgets everything, used when the installations are reconfigured.
+     */
+    public static void clear() {
+        NODES.clear();
+    }
+
+    private static String key(TibcoInstallation installation) {
+        return installation.getName() + '\u0000' + installation.getHome();
+    }
+
+    /**
+     * Gets the tool location set for the installation on the node, or else in
+     * the global node properties, as the node translation looks them up.
+     */
+    private static String location(Node node, TibcoInstallation installation) {
+        ToolLocationNodeProperty p = node.getNodeProperties().get(ToolLocationNodeProperty.class);
+        String home = p == null ? null : p.getHome(installation);
+        if (home == null) {
+            p = Jenkins.getInstance().getGlobalNodeProperties().get(ToolLocationNodeProperty.class);
+            home = p == null ? null : p.getHome(installation);
+        }
+        return String.valueOf(home);
+    }
+}
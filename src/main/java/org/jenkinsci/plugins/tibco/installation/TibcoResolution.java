@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import java.io.Serializable;
+
+/**
+ * Everything a build step needs to know about a {@link TibcoInstallation} on
+ * the node it runs on, resolved by {@link TibcoInstallation#resolve} in a
+ * single remote call.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TibcoResolution implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String home;
+    private final String executable;
+    private final String traFile;
+    private final String buildFile;
+    private final String version;
+
+    public TibcoResolution(String home, String executable, String traFile, String buildFile, String version) {
+        this.home = home;
+        this.executable = executable;
+        this.traFile = traFile;
+        this.buildFile = buildFile;
+        this.version = version;
+    }
+
+    /**
+     * The TIBCO home with macros expanded on the node.
+     */
+    public String getHome() {
+        return home;
+    }
+
+    /**
+     * Path of the executable, or null if it doesn't exist on the node.
+     */
+    public String getExecutable() {
+        return executable;
+    }
+
+    /**
+     * Path of the default <tt>.tra</tt> file that sits next to the
+     * executable, or null if there's no executable.
+     */
+    public String getTraFile() {
+        return traFile;
+    }
+
+    /**
+     * Absolute path of the first existing build file candidate, or null if
+     * none exists.
+     */
+    public String getBuildFile() {
+        return buildFile;
+    }
+
+    /**
+     * Version of the resolved executable, or null.
+     */
+    public String getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.jvm;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jenkinsci.plugins.tibco.tra.TraFile;
+
+/**
+ * Summary of the GC log of a TIBCO JVM: pauses, peak and live heap, and the
+ * share of the run spent in GC, from which a maximum heap is recommended.
+ * 
+ * <p>
+ * Reads the <tt>-verbose:gc -XX:+PrintGCTimeStamps</tt> format of Java 6 to 8
+ * and the unified <tt>gc</tt> log of Java 9 and later.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class GcLogSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Workspace relative path of the GC log.
+     */
+    public static final String LOG_NAME = "tibco-gc.log";
+
+    /**
+     * GC overhead, in percent, above which the heap is considered too small.
+     */
+    public static final double MAX_OVERHEAD = 10;
+
+    /**
+     * Factor of the configured heap a recommendation never goes above, so a
+     * heap recommended from a run with a recommended heap can't keep growing.
+     */
+    public static final int MAX_GROWTH = 2;
+
+    // 12.345: [GC (Allocation Failure)  4096K->3584K(8192K), 0.0123 secs]
+    private static final Pattern LEGACY = Pattern.compile(
+            "^([\\d.]+): \\[(Full GC|GC)\\D*?(\\d+)K->(\\d+)K\\((\\d+)K\\), ([\\d.]+) secs\\]");
+    // [12.345s][info][gc] GC(3) Pause Young (Normal) (G1 Evacuation Pause) 24M->4M(256M) 3.456ms
+    private static final Pattern UNIFIED = Pattern.compile(
+            "^\\[([\\d.]+)s\\].*GC\\(\\d+\\) Pause (\\w+).* (\\d+)([KMG])->(\\d+)([KMG])\\((\\d+)([KMG])\\) ([\\d.]+)ms");
+
+    private int pauses;
+    private int fullPauses;
+    private double totalPauseMillis;
+    private double maxPauseMillis;
+    private long peakHeapKB;
+    private long liveHeapKB;
+    private long committedHeapKB;
+    private double elapsedSeconds;
+    private double runSeconds;
+
+    /**
+     * JVM options writing the GC log to the given file. <tt>-Xloggc</tt> alone
+     * is the only form every JVM accepts: up to Java 8 it implies the GC
+     * time stamps, from Java 9 it maps to <tt>-Xlog:gc:file</tt>, which would
+     * refuse to start with <tt>-XX:+PrintGCTimeStamps</tt>.
+     */
+    public static String jvmOptions(String log) {
+        return "-Xloggc:" + log;
+    }
+
+    /**
+     * Adds the options writing the GC log to the extended properties of a TRA,
+     * keeping those of the base TRA and of the overrides.
+     */
+    public static void addJvmOptions(TraFile base, Map<String, String> overrides, String log) {
+        String props = overrides.containsKey(TraFile.EXTENDED_PROPERTIES)
+                ? overrides.get(TraFile.EXTENDED_PROPERTIES) : base.getExtendedProperties();
+        String gc = jvmOptions(log);
+        overrides.put(TraFile.EXTENDED_PROPERTIES, props == null || props.trim().length() == 0 ? gc : props.trim() + ' ' + gc);
+    }
+
+    /**
+     * Reads a GC log on the node it lives on.
+     * 
+     * @return null if there is no log
+     */
+    public static GcLogSummary read(FilePath log) throws IOException, InterruptedException {
+        return log.act(new FileCallable<GcLogSummary>() {
+            private static final long serialVersionUID = 1L;
+
+            public GcLogSummary invoke(File f, VirtualChannel channel) throws IOException {
+                if (!f.isFile())
+                    return null;
+                Reader r = new InputStreamReader(new FileInputStream(f), "ISO-8859-1");
+                try {
+                    return parse(r);
+                } finally {
+                    r.close();
+                }
+            }
+        });
+    }
+
+    public static GcLogSummary parse(Reader reader) throws IOException {
+        GcLogSummary s = new GcLogSummary();
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            Matcher m = LEGACY.matcher(line);
+            if (m.find()) {
+                s.add(Double.parseDouble(m.group(1)), m.group(2).startsWith("Full"), Long.parseLong(m.group(3)),
+                        Long.parseLong(m.group(4)), Long.parseLong(m.group(5)), Double.parseDouble(m.group(6)) * 1000);
+                continue;
+            }
+            m = UNIFIED.matcher(line);
+            if (m.find()) {
+                s.add(Double.parseDouble(m.group(1)), m.group(2).equals("Full"), toKB(m.group(3), m.group(4)),
+                        toKB(m.group(5), m.group(6)), toKB(m.group(7), m.group(8)), Double.parseDouble(m.group(9)));
+            }
+        }
+        return s;
+    }
+
+    private static long toKB(String n, String unit) {
+        long v = Long.parseLong(n);
+        return unit.equals("G") ? v * 1024 * 1024 : unit.equals("M") ? v * 1024 : v;
+    }
+
+    private void add(double timestamp, boolean full, long beforeKB, long afterKB, long committedKB, double pauseMillis) {
+        pauses++;
+        totalPauseMillis += pauseMillis;
+        maxPauseMillis = Math.max(maxPauseMillis, pauseMillis);
+        peakHeapKB = Math.max(peakHeapKB, beforeKB);
+        committedHeapKB = Math.max(committedHeapKB, committedKB);
+        elapsedSeconds = Math.max(elapsedSeconds, timestamp);
+        // what survives a full GC is the live set; young pauses only give an upper bound until one happens
+        if (full) {
+            liveHeapKB = fullPauses == 0 ? afterKB : Math.max(liveHeapKB, afterKB);
+            fullPauses++;
+        } else if (fullPauses == 0) {
+            liveHeapKB = Math.max(liveHeapKB, afterKB);
+        }
+    }
+
+    public boolean isEmpty() {
+        return pauses == 0;
+    }
+
+    public int getPauses() {
+        return pauses;
+    }
+
+    public int getFullPauses() {
+        return fullPauses;
+    }
+
+    public long getTotalPauseMillis() {
+        return Math.round(totalPauseMillis);
+    }
+
+    public long getMaxPauseMillis() {
+        return Math.round(maxPauseMillis);
+    }
+
+    public long getPeakHeapMegabytes() {
+        return peakHeapKB / 1024;
+    }
+
+    public long getLiveHeapMegabytes() {
+        return liveHeapKB / 1024;
+    }
+
+    public long getCommittedHeapMegabytes() {
+        return committedHeapKB / 1024;
+    }
+
+    /**
+     * Sets how long the process ran. Without it, the run is taken to end with
+     * its last GC, which overstates the overhead of runs going on after it.
+     */
+    public void setRunSeconds(double runSeconds) {
+        this.runSeconds = runSeconds;
+    }
+
+    /**
+     * Gets the share of the run spent in GC pauses, in percent.
+     */
+    public double getOverhead() {
+        double run = Math.max(elapsedSeconds, runSeconds);
+        return run <= 0 ? 0 : totalPauseMillis / (run * 10);
+    }
+
+    public String getOverheadString() {
+        return String.format("%.1f%%", getOverhead());
+    }
+
+    /**
+     * Recommends a maximum heap: two and a half times the live set, and at
+     * least half again the current heap if GC took more than
+     * {@link #MAX_OVERHEAD} of the run. Rounded up to 64 MB, at least 256 MB,
+     * and no more than {@link #MAX_GROWTH} times the configured heap.
+     * 
+     * @param currentMegabytes
+     *            the maximum heap of the run, or -1 if unknown
+     * @param configuredMegabytes
+     *            the maximum heap of the TRA and its overrides, before any
+     *            recommendation, or -1 if unknown
+     * @return the recommended maximum heap in megabytes, or -1 if the log has
+     *         no pause
+     */
+    public long recommendHeapMegabytes(long currentMegabytes, long configuredMegabytes) {
+        if (isEmpty())
+            return -1;
+        long mb = (long) Math.ceil(getLiveHeapMegabytes() * 2.5);
+        if (getOverhead() > MAX_OVERHEAD && currentMegabytes > 0)
+            mb = Math.max(mb, currentMegabytes * 3 / 2);
+        mb = Math.max(256, mb);
+        mb = (mb + 63) / 64 * 64;
+        return configuredMegabytes > 0 ? Math.min(mb, configuredMegabytes * MAX_GROWTH) : mb;
+    }
+}
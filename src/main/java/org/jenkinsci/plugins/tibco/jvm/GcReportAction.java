@@ -0,0 +1,162 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.jvm;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jenkinsci.plugins.tibco.Messages;
+
+/**
+ * GC figures of the TIBCO steps of a build, with the maximum heap recommended
+ * for their next run.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class GcReportAction implements Action {
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    public String getIconFileName() {
+        return "monitor.png";
+    }
+
+    public String getDisplayName() {
+        return Messages.GcReportDisplayName();
+    }
+
+    public String getUrlName() {
+        return "tibcoGc";
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<Entry>(entries));
+    }
+
+    /**
+     * Adds the GC figures of a step to a build.
+     */
+    public static void add(AbstractBuild<?, ?> build, Entry entry) {
+        GcReportAction a;
+        synchronized (build) {
+            a = build.getAction(GcReportAction.class);
+            if (a == null) {
+                a = new GcReportAction();
+                build.addAction(a);
+            }
+        }
+        synchronized (a) {
+            a.entries.add(entry);
+        }
+    }
+
+    /**
+     * Number of previous builds looked at for a recommended heap.
+     */
+    public static int MAX_BUILDS = Integer.getInteger(GcReportAction.class.getName() + ".maxBuilds", 10);
+
+    /**
+     * Gets the heap recommended by the last completed build having a report
+     * for the step, among the last {@link #MAX_BUILDS} ones.
+     * 
+     * @return the recommended maximum heap in megabytes, or -1 if none
+     */
+    public static long getRecommendedHeap(AbstractBuild<?, ?> build, String step) {
+        int n = 0;
+        for (AbstractBuild<?, ?> b = build.getPreviousCompletedBuild(); b != null && n < MAX_BUILDS; b = b.getPreviousCompletedBuild(), n++) {
+            GcReportAction a = b.getAction(GcReportAction.class);
+            if (a == null)
+                continue;
+            for (Entry e : a.getEntries())
+                if (e.getStep().equals(step))
+                    return e.getRecommendedHeap();
+        }
+        return -1;
+    }
+
+    /**
+     * GC figures of one step.
+     */
+    public static final class Entry implements Serializable {
+        private final String step;
+        private final GcLogSummary summary;
+        private final long heap;
+        private final long recommendedHeap;
+        private final boolean applied;
+
+        /**
+         * @param heap
+         *            maximum heap of the run in megabytes, or -1 if unknown
+         * @param configuredHeap
+         *            maximum heap of the TRA and its overrides in megabytes,
+         *            bounding the recommendation, or -1 if unknown
+         * @param applied
+         *            whether the heap was the one recommended by an earlier
+         *            build
+         */
+        public Entry(String step, GcLogSummary summary, long heap, long configuredHeap, boolean applied) {
+            this.step = step;
+            this.summary = summary;
+            this.heap = heap;
+            this.recommendedHeap = summary.recommendHeapMegabytes(heap, configuredHeap);
+            this.applied = applied;
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public GcLogSummary getSummary() {
+            return summary;
+        }
+
+        public long getHeap() {
+            return heap;
+        }
+
+        public long getRecommendedHeap() {
+            return recommendedHeap;
+        }
+
+        public boolean isApplied() {
+            return applied;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.launch;
+
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Cores and available physical memory of a node, used to bound how many
+ * TIBCO processes are launched side by side.
+ * 
+ * <p>
+ * On Linux the memory is <tt>MemAvailable</tt> from <tt>/proc/meminfo</tt>,
+ * which counts the page cache the kernel gives back on demand. The free
+ * memory the JVM reports leaves it out, so a busy build node would look
+ * nearly full. Elsewhere the free physical memory of the JVM is used.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class NodeCapacity implements Callable<long[], IOException> {
+
+    private static final long serialVersionUID = 1L;
+
+    private NodeCapacity() {
+    }
+
+    /**
+     * How many processes needing heapMegabytes each can run at once on the
+     * node: at most one per core, and no more than fit in available memory.
+     */
+    public static int parallelism(VirtualChannel channel, long heapMegabytes) throws IOException, InterruptedException {
+        long[] capacity = channel.call(new NodeCapacity());
+        long cores = capacity[0];
+        long free = capacity[1];
+        long byMemory = free < 0 || heapMegabytes <= 0 ? cores : free / heapMegabytes;
+        return (int) Math.max(1, Math.min(cores, byMemory));
+    }
+
+    public long[] call() throws IOException {
+        long free = memAvailable(new File("/proc/meminfo"));
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (free < 0 && os instanceof com.sun.management.OperatingSystemMXBean)
+            free = ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize() / (1024 * 1024);
+        return new long[] { Runtime.getRuntime().availableProcessors(), free };
+    }
+
+    /**
+     * Reads <tt>MemAvailable</tt> from a meminfo file.
+     * 
+     * @return megabytes, or -1 if the file or the entry is missing, as on
+     *         kernels older than 3.14
+     */
+    static long memAvailable(File meminfo) {
+        if (!meminfo.isFile())
+            return -1;
+        try {
+            BufferedReader r = new BufferedReader(new FileReader(meminfo));
+            try {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    // MemAvailable:    8123456 kB
+                    if (line.startsWith("MemAvailable:"))
+                        return Long.parseLong(line.substring(13).replace("kB", "").trim()) / 1024;
+                }
+            } finally {
+                r.close();
+            }
+        } catch (IOException e) {
+            // fall back to the free memory of the JVM
+        } catch (NumberFormatException e) {
+            // not a number, fall back as well
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.launch;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.tibco.installation.TibcoExecutableCache;
+
+/**
+ * Persistent OSGi configuration areas for the Eclipse based TIBCO launchers,
+ * passed through <tt>-configuration</tt>. Eclipse keeps its resolved bundle
+ * state there, so reusing the same area lets later launches skip most of the
+ * OSGi startup work.
+ * 
+ * <p>
+ * There's one area per executable and workspace on each node, so concurrent
+ * builds in different workspaces never share one. An area is recycled after
+ * {@link #MAX_USES} launches, and as soon as the installation changes, so
+ * that a hotfix never runs against the bundle state of the previous install.
+ * Areas left unused for {@link #IDLE_DAYS} days are deleted.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class OsgiConfigurationArea implements FileCallable<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Node root relative directory holding the configuration areas.
+     */
+    public static final String AREAS_DIR = "tibco-osgi";
+
+    public static int MAX_USES = Integer.getInteger(OsgiConfigurationArea.class.getName() + ".maxUses", 50);
+
+    public static int IDLE_DAYS = Integer.getInteger(OsgiConfigurationArea.class.getName() + ".idleDays", 7);
+
+    private static final String USES = ".tibco-uses";
+
+    private static final String STAMP = ".tibco-install";
+
+    private final String key;
+    private final String home;
+    private final String exe;
+
+    private OsgiConfigurationArea(String key, String home, String exe) {
+        this.key = key;
+        this.home = home;
+        this.exe = exe;
+    }
+
+    /**
+     * Gets the configuration area to use for an executable run in a
+     * workspace, counting this use.
+     * 
+     * @param home
+     *            TIBCO home of the executable, whose install state is checked
+     * @return path of the area on the node
+     */
+    public static String lease(Node node, String home, String exe, FilePath workspace) throws IOException, InterruptedException {
+        FilePath areas = node.getRootPath().child(AREAS_DIR);
+        return areas.act(new OsgiConfigurationArea(Util.getDigestOf(exe + '|' + workspace.getRemote()), home, exe));
+    }
+
+    public String invoke(File areas, VirtualChannel channel) throws IOException, InterruptedException {
+        evictIdle(areas);
+        File area = new File(areas, key);
+        File uses = new File(area, USES);
+        File stampFile = new File(area, STAMP);
+        String stamp = Long.toString(TibcoExecutableCache.stampOf(home, new File(exe)));
+        synchronized (key.intern()) {
+            int count = 0;
+            if (uses.exists()) {
+                try {
+                    count = Integer.parseInt(FileUtils.readFileToString(uses).trim());
+                } catch (NumberFormatException e) {
+                    count = MAX_USES;
+                }
+            }
+            // an area made by another install holds stale bundle state
+            if (count > 0 && !(stampFile.exists() && stamp.equals(FileUtils.readFileToString(stampFile).trim())))
+                count = MAX_USES;
+            if (count >= MAX_USES) {
+                Util.deleteRecursive(area);
+                count = 0;
+            }
+            area.mkdirs();
+            FileUtils.writeStringToFile(uses, Integer.toString(count + 1));
+            if (count == 0)
+                FileUtils.writeStringToFile(stampFile, stamp);
+        }
+        return area.getPath();
+    }
+
+    private void evictIdle(File areas) throws IOException {
+        File[] all = areas.listFiles();
+        if (all == null)
+            return;
+        long limit = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(IDLE_DAYS);
+        for (File a : all) {
+            if (!a.getName().equals(key) && new File(a, USES).lastModified() < limit)
+                Util.deleteRecursive(a);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.launch;
+
+import hudson.EnvVars;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+import hudson.util.ProcessTree;
+import hudson.util.ProcessTree.OSProcess;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Samples the CPU, resident memory and I/O of a launched TIBCO process and its
+ * children from <tt>/proc</tt>, while it runs.
+ * 
+ * <p>
+ * The processes are found by an environment variable set on the launch,
+ * the way {@link ProcessTree} finds the processes of a build to kill them.
+ * Each sample is one call to the node; nodes without <tt>/proc</tt> give no
+ * sample.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class ProcessSampler implements Runnable {
+
+    /**
+     * Environment variable marking the sampled processes.
+     */
+    public static final String MARKER = "TIBCO_SAMPLER_ID";
+
+    private static final Logger LOGGER = Logger.getLogger(ProcessSampler.class.getName());
+
+    private final VirtualChannel channel;
+    private final Map<String, String> marker;
+    private final long intervalMillis;
+    private final List<Sample> samples = Collections.synchronizedList(new ArrayList<Sample>());
+    private final long start = System.currentTimeMillis();
+    private volatile boolean stopped;
+    private Thread thread;
+
+    private ProcessSampler(VirtualChannel channel, String id, long intervalMillis) {
+        this.channel = channel;
+        this.marker = Collections.singletonMap(MARKER, id);
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Marks the environment of a launch and starts sampling the processes
+     * launched with it.
+     */
+    public static ProcessSampler start(VirtualChannel channel, EnvVars env, int intervalSeconds) {
+        String id = UUID.randomUUID().toString();
+        env.put(MARKER, id);
+        ProcessSampler sampler = new ProcessSampler(channel, id, intervalSeconds * 1000L);
+        sampler.thread = new Thread(sampler, "TIBCO process sampler " + id);
+        sampler.thread.setDaemon(true);
+        sampler.thread.start();
+        return sampler;
+    }
+
+    /**
+     * Stops sampling.
+     * 
+     * @return the samples taken
+     */
+    public List<Sample> stop() throws InterruptedException {
+        stopped = true;
+        thread.interrupt();
+        thread.join();
+        synchronized (samples) {
+            return new ArrayList<Sample>(samples);
+        }
+    }
+
+    public void run() {
+        try {
+            while (!stopped) {
+                Sample s = channel.call(new SampleCallable(marker));
+                if (s == null)
+                    return; // no /proc on this node
+                if (s.getProcesses() > 0)
+                    samples.add(s.at(System.currentTimeMillis() - start));
+                Thread.sleep(intervalMillis);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Stopped sampling TIBCO processes", e);
+        }
+    }
+
+    /**
+     * Resources of the sampled processes at one point in time.
+     */
+    public static final class Sample implements Serializable {
+        private final long time;
+        private final double cpuSeconds;
+        private final long rssKB;
+        private final long ioBytes;
+        private final int processes;
+
+        Sample(long time, double cpuSeconds, long rssKB, long ioBytes, int processes) {
+            this.time = time;
+            this.cpuSeconds = cpuSeconds;
+            this.rssKB = rssKB;
+            this.ioBytes = ioBytes;
+            this.processes = processes;
+        }
+
+        Sample at(long time) {
+            return new Sample(time, cpuSeconds, rssKB, ioBytes, processes);
+        }
+
+        /**
+         * Milliseconds since the launch.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * CPU time used so far by the live processes.
+         */
+        public double getCpuSeconds() {
+            return cpuSeconds;
+        }
+
+        public long getRssKB() {
+            return rssKB;
+        }
+
+        /**
+         * Bytes read and written so far by the live processes.
+         */
+        public long getIoBytes() {
+            return ioBytes;
+        }
+
+        public int getProcesses() {
+            return processes;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class SampleCallable implements Callable<Sample, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * USER_HZ, the unit of the CPU times in <tt>/proc/[pid]/stat</tt>.
+         */
+        private static final double CLOCK_TICKS = 100;
+
+        private final Map<String, String> marker;
+
+        SampleCallable(Map<String, String> marker) {
+            this.marker = marker;
+        }
+
+        public Sample call() throws IOException {
+            if (!new File("/proc/self/stat").exists())
+                return null;
+            double cpu = 0;
+            long rss = 0, io = 0;
+            int processes = 0;
+            for (OSProcess p : ProcessTree.get()) {
+                if (!p.hasMatchingEnvVars(marker))
+                    continue;
+                File dir = new File("/proc", String.valueOf(p.getPid()));
+                try {
+                    String stat = read(new File(dir, "stat")).get(0);
+                    String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                    cpu += (Long.parseLong(fields[11]) + Long.parseLong(fields[12])) / CLOCK_TICKS;
+                    for (String line : read(new File(dir, "status")))
+                        if (line.startsWith("VmRSS:"))
+                            rss += Long.parseLong(line.replaceAll("\\D", ""));
+                    File ioFile = new File(dir, "io");
+                    if (ioFile.canRead())
+                        for (String line : read(ioFile))
+                            if (line.startsWith("read_bytes:") || line.startsWith("write_bytes:"))
+                                io += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+                    processes++;
+                } catch (IOException e) {
+                    // the process exited meanwhile
+                } catch (RuntimeException e) {
+                    // unexpected format
+                }
+            }
+            return new Sample(0, cpu, rss, io, processes);
+        }
+
+        private static List<String> read(File f) throws IOException {
+            BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), "US-ASCII"));
+            try {
+                List<String> lines = new ArrayList<String>();
+                String line;
+                while ((line = r.readLine()) != null)
+                    lines.add(line);
+                return lines;
+            } finally {
+                r.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.launch;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jenkinsci.plugins.tibco.Messages;
+import org.jenkinsci.plugins.tibco.launch.ProcessSampler.Sample;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Resource samples of the TIBCO processes of a build, taken by
+ * {@link ProcessSampler}, with their peak and average figures.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public class ProcessSamplesAction implements Action {
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    public String getIconFileName() {
+        return "monitor.png";
+    }
+
+    public String getDisplayName() {
+        return Messages.ProcessSamplesDisplayName();
+    }
+
+    public String getUrlName() {
+        return "tibcoProcesses";
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<Entry>(entries));
+    }
+
+    /**
+     * Adds the samples of a step to a build.
+     */
+    public static void add(AbstractBuild<?, ?> build, String step, List<Sample> samples) {
+        if (samples.isEmpty())
+            return;
+        ProcessSamplesAction a;
+        synchronized (build) {
+            a = build.getAction(ProcessSamplesAction.class);
+            if (a == null) {
+                a = new ProcessSamplesAction();
+                build.addAction(a);
+            }
+        }
+        synchronized (a) {
+            a.entries.add(new Entry(step, samples));
+        }
+    }
+
+    /**
+     * Sends the samples of an entry as CSV.
+     */
+    public void doCsv(StaplerRequest req, StaplerResponse rsp, @QueryParameter int entry) throws IOException {
+        List<Entry> all = getEntries();
+        if (entry < 0 || entry >= all.size()) {
+            rsp.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        rsp.setContentType("text/csv;charset=UTF-8");
+        PrintWriter w = rsp.getWriter();
+        w.println("time_ms,processes,cpu_seconds,rss_kb,io_bytes");
+        for (Sample s : all.get(entry).getSamples())
+            w.println(s.getTime() + "," + s.getProcesses() + "," + s.getCpuSeconds() + "," + s.getRssKB() + "," + s.getIoBytes());
+        w.flush();
+    }
+
+    /**
+     * Samples of one step.
+     */
+    public static final class Entry implements Serializable {
+        private final String step;
+        private final List<Sample> samples;
+
+        Entry(String step, List<Sample> samples) {
+            this.step = step;
+            this.samples = new ArrayList<Sample>(samples);
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public List<Sample> getSamples() {
+            return Collections.unmodifiableList(samples);
+        }
+
+        public long getPeakRssMegabytes() {
+            long peak = 0;
+            for (Sample s : samples)
+                peak = Math.max(peak, s.getRssKB());
+            return peak / 1024;
+        }
+
+        public long getAverageRssMegabytes() {
+            long sum = 0;
+            for (Sample s : samples)
+                sum += s.getRssKB();
+            return sum / samples.size() / 1024;
+        }
+
+        /**
+         * Highest CPU use between two samples, in percent of one core.
+         */
+        public long getPeakCpu() {
+            double peak = 0;
+            for (int i = 1; i < samples.size(); i++)
+                peak = Math.max(peak, cpu(samples.get(i - 1), samples.get(i)));
+            return Math.round(peak);
+        }
+
+        /**
+         * CPU use from the first to the last sample, in percent of one core.
+         */
+        public long getAverageCpu() {
+            return samples.size() < 2 ? 0 : Math.round(cpu(samples.get(0), samples.get(samples.size() - 1)));
+        }
+
+        /**
+         * Highest count of bytes read and written, in megabytes. Processes
+         * that exited no longer count, so this is a lower bound.
+         */
+        public long getIoMegabytes() {
+            long peak = 0;
+            for (Sample s : samples)
+                peak = Math.max(peak, s.getIoBytes());
+            return peak / (1024 * 1024);
+        }
+
+        private static double cpu(Sample from, Sample to) {
+            long millis = to.getTime() - from.getTime();
+            return millis <= 0 ? 0 : Math.max(0, to.getCpuSeconds() - from.getCpuSeconds()) * 100000 / millis;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
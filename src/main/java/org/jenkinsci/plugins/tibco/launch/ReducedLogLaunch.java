@@ -0,0 +1,203 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.launch;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Launcher.LocalLauncher;
+import hudson.Launcher.ProcStarter;
+import hudson.Launcher.RemoteLauncher;
+import hudson.Proc;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.remoting.Callable;
+import hudson.remoting.RemoteOutputStream;
+import hudson.util.ArgumentListBuilder;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.jenkinsci.plugins.tibco.Messages;
+import org.jenkinsci.plugins.tibco.console.LogReducer;
+import org.jenkinsci.plugins.tibco.metrics.TibcoMetrics;
+
+/**
+ * Launches a TIBCO process from the node itself, so that only its reduced
+ * output, see {@link LogReducer}, travels to the master. The whole output is
+ * written gzipped on the node, and archived with the build only when the step
+ * fails, along with the last lines of the output in the console.
+ * 
+ * <p>
+ * A launcher decorated by a build wrapper can only be used from the master,
+ * so with one the process is launched through it as usual and its output is
+ * reduced on the master instead.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class ReducedLogLaunch implements Callable<long[], IOException> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Workspace relative directory of the full logs on the node, and
+     * artifacts relative directory of the archived ones.
+     */
+    public static final String LOG_DIR = "tibco-logs";
+
+    private final ArgumentListBuilder args;
+    private final Map<String, String> env;
+    private final String pwd;
+    private final String log;
+    private final int tailLines;
+    private final OutputStream console;
+
+    private ReducedLogLaunch(ArgumentListBuilder args, Map<String, String> env, String pwd, String log, int tailLines, OutputStream console) {
+        this.args = args;
+        this.env = env;
+        this.pwd = pwd;
+        this.log = log;
+        this.tailLines = tailLines;
+        this.console = new RemoteOutputStream(console);
+    }
+
+    /**
+     * Runs the process on the node of the launcher.
+     * 
+     * @param pwd
+     *            working directory of the process, or null
+     * @param console
+     *            receives the reduced output
+     * @param step
+     *            build file or project of the step, naming the full log
+     * @param launchStart
+     *            {@link System#nanoTime()} when the launch began, for the
+     *            metrics
+     * @return the exit code of the process
+     */
+    public static int run(AbstractBuild<?, ?> build, Launcher launcher, ArgumentListBuilder args, Map<String, String> env,
+            String pwd, OutputStream console, String step, int tailLines, TibcoMetrics.Series metrics, long launchStart,
+            TaskListener listener) throws IOException, InterruptedException {
+        String name = step.replaceAll("[^A-Za-z0-9._-]", "_") + ".log.gz";
+        File archived = new File(new File(build.getArtifactsDir(), LOG_DIR), name);
+        int r;
+        if (isUndecorated(launcher)) {
+            FilePath log = build.getWorkspace().child(LOG_DIR).child(name);
+            long[] result = launcher.getChannel().call(new ReducedLogLaunch(args, env, pwd, log.getRemote(), tailLines, console));
+            r = (int) result[0];
+            metrics.launchedIn(result[1]);
+            if (r != 0 && log.exists()) {
+                log.copyTo(new FilePath(archived));
+                log.delete();
+            }
+        } else {
+            archived.getParentFile().mkdirs();
+            LogReducer reducer = new LogReducer(console, new GZIPOutputStream(new FileOutputStream(archived)), tailLines);
+            try {
+                ProcStarter starter = launcher.launch().cmds(args).envs(env).stdout(reducer);
+                if (pwd != null)
+                    starter.pwd(pwd);
+                Proc proc = starter.start();
+                metrics.launched(launchStart);
+                r = proc.join();
+            } finally {
+                reducer.forceEol();
+                reducer.close();
+            }
+            finish(reducer, r, tailLines, console);
+            if (r == 0)
+                archived.delete();
+        }
+        if (r != 0 && archived.exists())
+            listener.getLogger().println(Messages.FullLogArchived(LOG_DIR + '/' + name));
+        return r;
+    }
+
+    /**
+     * Tells whether a launcher is the plain one of its node, which the node
+     * can stand in for.
+     */
+    private static boolean isUndecorated(Launcher launcher) {
+        return launcher.getClass() == LocalLauncher.class || launcher.getClass() == RemoteLauncher.class;
+    }
+
+    /**
+     * Ends the reduced console with the count of omitted lines and, if the
+     * process failed, its last lines.
+     */
+    private static void finish(LogReducer reducer, int r, int tailLines, OutputStream console) throws IOException {
+        PrintStream out = new PrintStream(console, true);
+        out.println(Messages.LinesOmitted(reducer.getOmitted()));
+        if (r != 0) {
+            out.println(Messages.LastLines(tailLines));
+            reducer.writeTail();
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the exit code, and the nanoseconds it took to start the
+     *         process
+     */
+    public long[] call() throws IOException {
+        File file = new File(log);
+        file.getParentFile().mkdirs();
+        LogReducer reducer = new LogReducer(console, new GZIPOutputStream(new FileOutputStream(file)), tailLines);
+        long start = System.nanoTime();
+        long started;
+        int r;
+        try {
+            ProcStarter starter = new LocalLauncher(new StreamTaskListener(console)).launch().cmds(args).envs(env).stdout(reducer);
+            if (pwd != null)
+                starter.pwd(pwd);
+            Proc proc = starter.start();
+            started = System.nanoTime() - start;
+            r = proc.join();
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException().initCause(e);
+        } finally {
+            reducer.forceEol();
+            reducer.close();
+        }
+        finish(reducer, r, tailLines, console);
+        if (r == 0)
+            file.delete();
+        return new long[] { r, started };
+    }
+}
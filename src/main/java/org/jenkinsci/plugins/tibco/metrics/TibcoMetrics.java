@@ -0,0 +1,238 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.metrics;
+
+import hudson.model.AbstractBuild;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of the metrics of the TIBCO build steps, kept per
+ * installation, node and operation since Jenkins started.
+ * 
+ * <p>
+ * Each step gets its {@link Series} and records the time taken to resolve
+ * the executable on the node, to start the process and to run it, along with
+ * the exit code and the console bytes written by the process.
+ *
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TibcoMetrics {
+
+    private static final TibcoMetrics INSTANCE = new TibcoMetrics();
+
+    /**
+     * Upper bounds, in seconds, of the latency histogram buckets.
+     */
+    static final double[] LATENCY_BUCKETS = { 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    /**
+     * Upper bounds, in seconds, of the step duration histogram buckets.
+     */
+    static final double[] DURATION_BUCKETS = { 10, 30, 60, 120, 300, 600, 1200, 1800, 3600 };
+
+    private final ConcurrentMap<List<String>, Series> series = new ConcurrentHashMap<List<String>, Series>();
+
+    private TibcoMetrics() {
+    }
+
+    public static TibcoMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the series of an installation and operation on the node of a build.
+     */
+    public Series series(String installation, AbstractBuild<?, ?> build, String operation) {
+        String node = build.getBuiltOnStr();
+        return series(installation, node == null || node.length() == 0 ? "master" : node, operation);
+    }
+
+    public Series series(String installation, String node, String operation) {
+        List<String> labels = new ArrayList<String>(3);
+        labels.add(String.valueOf(installation));
+        labels.add(String.valueOf(node));
+        labels.add(String.valueOf(operation));
+        labels = Collections.unmodifiableList(labels);
+        Series s = series.get(labels);
+        if (s == null) {
+            Series created = new Series(labels);
+            s = series.putIfAbsent(labels, created);
+            if (s == null)
+                s = created;
+        }
+        return s;
+    }
+
+    /**
+     * Writes all the series in the Prometheus text exposition format.
+     */
+    public void writePrometheus(PrintWriter w) {
+        List<Series> all = new ArrayList<Series>(series.values());
+        writeHistograms(w, all, "tibco_resolution_seconds", "Time to resolve the TIBCO executable on the node.", 0);
+        writeHistograms(w, all, "tibco_launch_seconds", "Time to start the TIBCO process.", 1);
+        writeHistograms(w, all, "tibco_step_duration_seconds", "Duration of the TIBCO process.", 2);
+
+        w.println("# HELP tibco_step_exit_total TIBCO processes by exit code; -1 when the process could not be run.");
+        w.println("# TYPE tibco_step_exit_total counter");
+        for (Series s : all)
+            for (Map.Entry<Integer, AtomicLong> e : s.exitCodes.entrySet())
+                w.println("tibco_step_exit_total{" + s.labels("code", String.valueOf(e.getKey())) + "} " + e.getValue().get());
+
+        w.println("# HELP tibco_console_bytes_total Console bytes written by the TIBCO processes.");
+        w.println("# TYPE tibco_console_bytes_total counter");
+        for (Series s : all)
+            w.println("tibco_console_bytes_total{" + s.labels(null, null) + "} " + s.consoleBytes.get());
+        w.flush();
+    }
+
+    private static void writeHistograms(PrintWriter w, List<Series> all, String name, String help, int index) {
+        w.println("# HELP " + name + " " + help);
+        w.println("# TYPE " + name + " histogram");
+        for (Series s : all)
+            s.histograms[index].write(w, name, s);
+    }
+
+    /**
+     * Metrics of one installation, node and operation.
+     */
+    public static final class Series {
+        private final List<String> labels;
+        private final Histogram[] histograms = {
+                new Histogram(LATENCY_BUCKETS), new Histogram(LATENCY_BUCKETS), new Histogram(DURATION_BUCKETS) };
+        private final ConcurrentMap<Integer, AtomicLong> exitCodes = new ConcurrentHashMap<Integer, AtomicLong>();
+        private final AtomicLong consoleBytes = new AtomicLong();
+
+        Series(List<String> labels) {
+            this.labels = labels;
+        }
+
+        /**
+         * Records the resolution of the executable started at the given
+         * {@link System#nanoTime()}.
+         */
+        public void resolved(long startNanos) {
+            histograms[0].observe(startNanos);
+        }
+
+        /**
+         * Records the start of the process launched at the given
+         * {@link System#nanoTime()}.
+         */
+        public void launched(long startNanos) {
+            histograms[1].observe(startNanos);
+        }
+
+        /**
+         * Records the start of a process that took the given nanoseconds,
+         * measured where it was launched.
+         */
+        public void launchedIn(long nanos) {
+            histograms[1].observeNanos(nanos);
+        }
+
+        /**
+         * Records the end of the process launched at the given
+         * {@link System#nanoTime()}.
+         */
+        public void finished(long startNanos, int exitCode, long bytes) {
+            histograms[2].observe(startNanos);
+            AtomicLong count = exitCodes.get(exitCode);
+            if (count == null) {
+                AtomicLong created = new AtomicLong();
+                count = exitCodes.putIfAbsent(exitCode, created);
+                if (count == null)
+                    count = created;
+            }
+            count.incrementAndGet();
+            consoleBytes.addAndGet(bytes);
+        }
+
+        String labels(String name, String value) {
+            StringBuilder buf = new StringBuilder();
+            buf.append("installation=\"").append(escape(labels.get(0)))
+                    .append("\",node=\"").append(escape(labels.get(1)))
+                    .append("\",operation=\"").append(escape(labels.get(2))).append('"');
+            if (name != null)
+                buf.append(',').append(name).append("=\"").append(escape(value)).append('"');
+            return buf.toString();
+        }
+
+        private static String escape(String s) {
+            return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    /**
+     * Cumulative histogram of durations, in seconds.
+     */
+    static final class Histogram {
+        private final double[] bounds;
+        private final long[] counts;
+        private long count;
+        private double sum;
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds;
+            this.counts = new long[bounds.length];
+        }
+
+        void observe(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        synchronized void observeNanos(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < bounds.length; i++)
+                if (seconds <= bounds[i])
+                    counts[i]++;
+            count++;
+            sum += seconds;
+        }
+
+        synchronized void write(PrintWriter w, String name, Series s) {
+            for (int i = 0; i < bounds.length; i++)
+                w.println(name + "_bucket{" + s.labels("le", String.valueOf(bounds[i])) + "} " + counts[i]);
+            w.println(name + "_bucket{" + s.labels("le", "+Inf") + "} " + count);
+            w.println(name + "_sum{" + s.labels(null, null) + "} " + sum);
+            w.println(name + "_count{" + s.labels(null, null) + "} " + count);
+        }
+    }
+}
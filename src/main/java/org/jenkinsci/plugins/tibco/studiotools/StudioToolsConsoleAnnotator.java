@@ -2,17 +2,16 @@
 package org.jenkinsci.plugins.tibco.studiotools;
 
 import hudson.Launcher;
-import hudson.console.LineTransformationOutputStream;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 
-import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder;
 import org.jenkinsci.plugins.tibco.AmxEclipseAntBuilder.DescriptorImpl;
+import org.jenkinsci.plugins.tibco.console.AntConsoleAnnotator;
+import org.jenkinsci.plugins.tibco.console.EncodedNote;
 import org.kohsuke.stapler.StaplerRequest;
 /**
  * @author Federico Pastore - federico.pastore@gmail.com
@@ -29,40 +28,19 @@ import org.kohsuke.stapler.StaplerRequest;
  * 
  */
 
-public class StudioToolsConsoleAnnotator extends LineTransformationOutputStream {
-    private final OutputStream outputConsole;
-    private final Charset charset;
-
-    private boolean isEmptyLine;
+public class StudioToolsConsoleAnnotator extends AntConsoleAnnotator {
+    private static final EncodedNote TARGET_NOTE = new EncodedNote(new StudioToolsTargetNote());
+    private static final EncodedNote OUTCOME_NOTE = new EncodedNote(new StudioToolsOutcomeNote());
 
     public StudioToolsConsoleAnnotator(OutputStream out, Charset charset) {
-        this.outputConsole = out;
-        this.charset = charset;
-    }
-
-    @Override
-    protected void eol(byte[] b, int len) throws IOException {
-        String line = charset.decode(ByteBuffer.wrap(b, 0, len)).toString();
-        line = trimEOL(line);
-        if (isEmptyLine && endsWith(line,':') && line.indexOf(' ')<0)
-            new StudioToolsTargetNote().encodeTo(outputConsole);
-
-        if (line.equals("BUILD SUCCESSFUL") || line.equals("BUILD FAILED"))
-            new StudioToolsOutcomeNote().encodeTo(outputConsole);
-
-        isEmptyLine = line.length()==0;
-        outputConsole.write(b,0,len);
-    }
-
-    private boolean endsWith(String line, char c) {
-        int len = line.length();
-        return len>0 && line.charAt(len-1)==c;
+        this(out, charset, null);
     }
 
-    @Override
-    public void close() throws IOException {
-        super.close();
-        outputConsole.close();
+    /**
+     * @param step
+     *            project of the step, recorded with the problems
+     */
+    public StudioToolsConsoleAnnotator(OutputStream out, Charset charset, String step) {
+        super(out, charset, step, TARGET_NOTE, OUTCOME_NOTE);
     }
-
 }
@@ -58,9 +58,14 @@ public class StudioToolsOutcomeNote extends ConsoleNote {
 
     @Override
     public ConsoleAnnotator annotate(Object context, MarkupText text, int charPos) {
-        if (text.getText().contains("FAIL"))
+        // the note only marks "BUILD SUCCESSFUL" and "BUILD FAILED" lines
+        String line = text.getText();
+        int i = line.indexOf("BUILD ")+6;
+        if (i<6 || i>=line.length())
+            return null;
+        if (line.charAt(i)=='F')
             text.addMarkup(0,text.length(),"<span class=tibco-ant-outcome-failure>","</span>");
-        if (text.getText().contains("SUCCESS"))
+        else if (line.charAt(i)=='S')
             text.addMarkup(0,text.length(),"<span class=tibco-ant-outcome-success>","</span>");
         return null;
     }
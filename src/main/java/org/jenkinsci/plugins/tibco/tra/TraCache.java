@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.tra;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Node side cache of parsed {@link TraFile}s, keyed by path and invalidated
+ * when the file date or size changes.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TraCache {
+
+    private static final ConcurrentMap<String, Entry> CACHE = new ConcurrentHashMap<String, Entry>();
+
+    private TraCache() {
+    }
+
+    /**
+     * Reads a TRA on the node it lives on.
+     */
+    public static TraFile read(FilePath tra) throws IOException, InterruptedException {
+        return tra.act(new FileCallable<TraFile>() {
+            private static final long serialVersionUID = 1L;
+
+            public TraFile invoke(File f, VirtualChannel channel) throws IOException {
+                return get(f);
+            }
+        });
+    }
+
+    public static TraFile get(File tra) throws IOException {
+        String key = tra.getAbsolutePath();
+        long lastModified = tra.lastModified();
+        long length = tra.length();
+        Entry e = CACHE.get(key);
+        if (e != null && e.lastModified == lastModified && e.length == length)
+            return e.tra;
+        TraFile parsed = TraFile.parse(tra);
+        CACHE.put(key, new Entry(parsed, lastModified, length));
+        return parsed;
+    }
+
+    private static final class Entry {
+        private final TraFile tra;
+        private final long lastModified;
+        private final long length;
+
+        Entry(TraFile tra, long lastModified, long length) {
+            this.tra = tra;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
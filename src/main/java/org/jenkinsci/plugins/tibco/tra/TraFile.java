@@ -0,0 +1,199 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.tra;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Model of a TIBCO <tt>.tra</tt> property file, the file passed to TIBCO
+ * launchers through <tt>--propFile</tt>. TRA files look like Java properties
+ * but hold unescaped Windows paths, so they are parsed line by line without
+ * escape processing and the property order is kept.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TraFile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String HEAP_INITIAL = "java.heap.size.initial";
+    public static final String HEAP_MAX = "java.heap.size.max";
+    public static final String CLASS_PATH = "tibco.class.path.extended";
+    public static final String EXTENDED_PROPERTIES = "java.extended.properties";
+    public static final String ENV_PREFIX = "tibco.env.";
+
+    private final Map<String, String> properties;
+
+    public TraFile(Map<String, String> properties) {
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<String, String>(properties));
+    }
+
+    public static TraFile parse(File tra) throws IOException {
+        Reader r = new InputStreamReader(new FileInputStream(tra), "ISO-8859-1");
+        try {
+            return parse(r);
+        } finally {
+            r.close();
+        }
+    }
+
+    public static TraFile parse(Reader reader) throws IOException {
+        Map<String, String> props = new LinkedHashMap<String, String>();
+        BufferedReader r = new BufferedReader(reader);
+        String line;
+        while ((line = r.readLine()) != null) {
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#' || line.charAt(0) == '!')
+                continue;
+            int sep = 0;
+            while (sep < line.length() && line.charAt(sep) != '=' && line.charAt(sep) != ':'
+                    && !Character.isWhitespace(line.charAt(sep)))
+                sep++;
+            String key = line.substring(0, sep);
+            String value = line.substring(sep).trim();
+            if (value.length() > 0 && (value.charAt(0) == '=' || value.charAt(0) == ':'))
+                value = value.substring(1).trim();
+            props.put(key, value);
+        }
+        return new TraFile(props);
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public String get(String key) {
+        return properties.get(key);
+    }
+
+    /**
+     * Initial heap, like <tt>256M</tt>, or null.
+     */
+    public String getHeapInitial() {
+        return properties.get(HEAP_INITIAL);
+    }
+
+    /**
+     * Maximum heap, like <tt>1024M</tt>, or null.
+     */
+    public String getHeapMax() {
+        return properties.get(HEAP_MAX);
+    }
+
+    /**
+     * Maximum heap in megabytes, or -1 if not set or not readable.
+     */
+    public long getHeapMaxMegabytes() {
+        return toMegabytes(getHeapMax());
+    }
+
+    public String getClassPath() {
+        return properties.get(CLASS_PATH);
+    }
+
+    public String getExtendedProperties() {
+        return properties.get(EXTENDED_PROPERTIES);
+    }
+
+    /**
+     * The <tt>tibco.env.*</tt> values, keyed by name without prefix.
+     */
+    public Map<String, String> getEnv() {
+        Map<String, String> env = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, String> e : properties.entrySet()) {
+            if (e.getKey().startsWith(ENV_PREFIX))
+                env.put(e.getKey().substring(ENV_PREFIX.length()), e.getValue());
+        }
+        return env;
+    }
+
+    /**
+     * Returns a copy of this TRA with the given properties added or replaced.
+     */
+    public TraFile overlay(Map<String, String> overrides) {
+        Map<String, String> props = new LinkedHashMap<String, String>(properties);
+        props.putAll(overrides);
+        return new TraFile(props);
+    }
+
+    public void write(Writer w) throws IOException {
+        PrintWriter p = new PrintWriter(w);
+        for (Map.Entry<String, String> e : properties.entrySet())
+            p.println(e.getKey() + '=' + e.getValue());
+        p.flush();
+    }
+
+    public void write(File tra) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(tra), "ISO-8859-1");
+        try {
+            write(w);
+        } finally {
+            w.close();
+        }
+    }
+
+    /**
+     * Converts a JVM memory size like <tt>512m</tt> or <tt>2G</tt> to megabytes.
+     * 
+     * @return -1 if the size can't be read
+     */
+    public static long toMegabytes(String size) {
+        if (size == null || size.length() == 0)
+            return -1;
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        String n = Character.isDigit(unit) ? size : size.substring(0, size.length() - 1);
+        try {
+            long v = Long.parseLong(n.trim());
+            switch (unit) {
+            case 'G': return v * 1024;
+            case 'M': return v;
+            case 'K': return v / 1024;
+            default: return Character.isDigit(unit) ? v / (1024 * 1024) : -1;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.tra;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a TRA made of a base TRA plus some overriding properties. Overlays
+ * are written once per node in a content addressed directory, keyed by base
+ * TRA and overrides, and reused by every later build asking for the same one.
+ * Overlays not used for {@link #IDLE_DAYS} days, like the ones of a heap size
+ * recommended by an older build, are deleted.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class TraOverlay implements FileCallable<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Node root relative directory holding the generated overlays.
+     */
+    public static final String OVERLAY_DIR = "tibco-tra";
+
+    public static int IDLE_DAYS = Integer.getInteger(TraOverlay.class.getName() + ".idleDays", 7);
+
+    private final String overlayDir;
+    private final Map<String, String> overrides;
+
+    private TraOverlay(String overlayDir, Map<String, String> overrides) {
+        this.overlayDir = overlayDir;
+        this.overrides = overrides;
+    }
+
+    /**
+     * Gets the overlay of a base TRA on the node, generating it if needed.
+     * 
+     * @param overrides
+     *            overriding properties, in TRA syntax
+     * @return path of the overlay TRA on the node
+     */
+    public static String overlay(Node node, FilePath baseTra, String overrides) throws IOException, InterruptedException {
+        return overlay(node, baseTra, parse(overrides));
+    }
+
+    public static String overlay(Node node, FilePath baseTra, Map<String, String> overrides) throws IOException, InterruptedException {
+        FilePath dir = node.getRootPath().child(OVERLAY_DIR);
+        return baseTra.act(new TraOverlay(dir.getRemote(), overrides));
+    }
+
+    /**
+     * Reads properties written in TRA syntax.
+     */
+    public static Map<String, String> parse(String properties) throws IOException {
+        if (properties == null)
+            return new LinkedHashMap<String, String>();
+        return new LinkedHashMap<String, String>(TraFile.parse(new StringReader(properties)).getProperties());
+    }
+
+    public String invoke(File base, VirtualChannel channel) throws IOException, InterruptedException {
+        String key = base.getAbsolutePath() + '|' + base.lastModified() + '|' + base.length() + '|' + overrides;
+        File overlay = new File(overlayDir, base.getName().replace(".tra", "") + '-' + Util.getDigestOf(key) + ".tra");
+        evictIdle(overlay);
+        if (overlay.exists()) {
+            // the time of an overlay tells when it was last used
+            overlay.setLastModified(System.currentTimeMillis());
+            return overlay.getPath();
+        }
+
+        overlay.getParentFile().mkdirs();
+        File tmp = File.createTempFile("overlay", ".tmp", overlay.getParentFile());
+        TraCache.get(base).overlay(overrides).write(tmp);
+        if (!tmp.renameTo(overlay) && !overlay.exists())
+            throw new IOException("Unable to write " + overlay);
+        tmp.delete();
+        return overlay.getPath();
+    }
+
+    /**
+     * Deletes the overlays, and temporary files left by failed writes, not
+     * used for {@link #IDLE_DAYS} days, but the one asked for.
+     */
+    static void evictIdle(File overlay) {
+        File[] all = overlay.getParentFile().listFiles();
+        if (all == null)
+            return;
+        long limit = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(IDLE_DAYS);
+        for (File f : all) {
+            if (!f.equals(overlay) && f.isFile() && f.lastModified() < limit)
+                f.delete();
+        }
+    }
+}
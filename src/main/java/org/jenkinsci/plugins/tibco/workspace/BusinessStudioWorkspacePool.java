@@ -0,0 +1,244 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.workspace;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per node pool of Business Studio workspaces, handed to amx_eclipse_ant
+ * through <tt>-data</tt>. A build leases a workspace for exclusive use and
+ * returns it when done: the workspace <tt>.metadata</tt> survives the lease so
+ * the next build of the same job finds an initialized workspace, while
+ * everything else is cleaned up. Builds prefer the workspace their job used
+ * last, and a workspace passing to another job starts with an empty
+ * <tt>.metadata</tt>, so projects registered by one job never show up in
+ * another.
+ * 
+ * <p>
+ * Each pool, one per node and installation, holds at most {@link #MAX_SIZE}
+ * workspaces; builds wait for a free one beyond that. Workspaces left unused
+ * for {@link #IDLE_HOURS} hours are deleted.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class BusinessStudioWorkspacePool {
+
+    /**
+     * Node root relative directory holding the pooled workspaces.
+     */
+    public static final String POOL_DIR = "tibco-workspaces";
+
+    public static int MAX_SIZE = Integer.getInteger(BusinessStudioWorkspacePool.class.getName() + ".maxSize", 4);
+
+    public static int IDLE_HOURS = Integer.getInteger(BusinessStudioWorkspacePool.class.getName() + ".idleHours", 24);
+
+    private static final Map<String, BusinessStudioWorkspacePool> POOLS = new HashMap<String, BusinessStudioWorkspacePool>();
+
+    private final FilePath dir;
+    private final List<Slot> slots = new ArrayList<Slot>();
+
+    private BusinessStudioWorkspacePool(FilePath dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Gets the pool of a node for the given key, like the installation and
+     * executable version.
+     */
+    public static BusinessStudioWorkspacePool of(Node node, String key) {
+        FilePath dir = node.getRootPath().child(POOL_DIR).child(Util.getDigestOf(key));
+        synchronized (POOLS) {
+            String id = node.getNodeName() + '|' + dir.getRemote();
+            BusinessStudioWorkspacePool pool = POOLS.get(id);
+            if (pool == null) {
+                pool = new BusinessStudioWorkspacePool(dir);
+                POOLS.put(id, pool);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Leases a workspace, waiting for one if the pool is full and every
+     * workspace is in use.
+     * 
+     * @param owner
+     *            the job leasing the workspace, like its full name
+     */
+    public Lease lease(String owner, TaskListener listener) throws IOException, InterruptedException {
+        Slot slot;
+        boolean reset;
+        List<Slot> evicted = new ArrayList<Slot>();
+        synchronized (this) {
+            evictIdle(evicted);
+            while ((slot = freeSlot(owner)) == null)
+                wait();
+            slot.leased = true;
+            reset = !owner.equals(slot.owner);
+            slot.owner = owner;
+        }
+        FilePath ws = dir.child(Integer.toString(slot.id));
+        try {
+            for (Slot s : evicted)
+                dir.child(Integer.toString(s.id)).deleteRecursive();
+            if (reset)
+                ws.child(".metadata").deleteRecursive();
+            ws.child(".metadata").mkdirs();
+        } catch (IOException e) {
+            release(slot, true);
+            throw e;
+        } catch (InterruptedException e) {
+            release(slot, true);
+            throw e;
+        }
+        return new Lease(slot, ws);
+    }
+
+    /**
+     * Picks a free slot, the one last used by owner if any, else a new one,
+     * else any free one.
+     */
+    private Slot freeSlot(String owner) {
+        Slot free = null;
+        for (Slot s : slots) {
+            if (!s.leased && owner.equals(s.owner))
+                return s;
+            if (!s.leased && free == null)
+                free = s;
+        }
+        if (slots.size() >= MAX_SIZE)
+            return free;
+        int id = 0;
+        for (Slot s : slots)
+            id = Math.max(id, s.id + 1);
+        Slot s = new Slot(id);
+        slots.add(s);
+        return s;
+    }
+
+    private void evictIdle(List<Slot> evicted) {
+        long limit = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(IDLE_HOURS);
+        for (Iterator<Slot> it = slots.iterator(); it.hasNext();) {
+            Slot s = it.next();
+            if (!s.leased && s.lastUsed < limit) {
+                it.remove();
+                evicted.add(s);
+            }
+        }
+    }
+
+    /**
+     * @param dirty
+     *            true if the workspace wasn't cleaned up, so that the next
+     *            lease starts it over
+     */
+    private synchronized void release(Slot slot, boolean dirty) {
+        if (dirty)
+            slot.owner = null;
+        slot.leased = false;
+        slot.lastUsed = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    /**
+     * A workspace leased from the pool.
+     */
+    public final class Lease {
+        private final Slot slot;
+        private final FilePath workspace;
+
+        private Lease(Slot slot, FilePath workspace) {
+            this.slot = slot;
+            this.workspace = workspace;
+        }
+
+        public FilePath getWorkspace() {
+            return workspace;
+        }
+
+        /**
+         * Cleans up the workspace, keeping its <tt>.metadata</tt>, and gives it
+         * back to the pool.
+         */
+        public void release() throws IOException, InterruptedException {
+            boolean clean = false;
+            try {
+                workspace.act(new Cleanup());
+                clean = true;
+            } finally {
+                BusinessStudioWorkspacePool.this.release(slot, !clean);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private final int id;
+        private boolean leased;
+        private String owner;
+        private long lastUsed = System.currentTimeMillis();
+
+        Slot(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Cleanup implements FileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+
+        public Void invoke(File ws, VirtualChannel channel) throws IOException {
+            File[] files = ws.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (!f.getName().equals(".metadata"))
+                        Util.deleteRecursive(f);
+                }
+            }
+            // the Eclipse log only grows, and nothing reads it back
+            new File(ws, ".metadata/.log").delete();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.workspace;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the <tt>.metadata</tt> of a Business Studio workspace, taken
+ * after the first successful build of a job and restored into later builds
+ * whose workspace has no metadata yet, so they don't rebuild the workspace
+ * index and project import from scratch.
+ * 
+ * <p>
+ * Only <tt>.metadata</tt> is kept. The project sources next to it come from
+ * the checkout of each build, and restoring older copies over a fresh checkout
+ * would build stale code.
+ * 
+ * <p>
+ * A snapshot is taken again by the first successful build after
+ * {@link #REFRESH_DAYS} days, so it follows the projects of the job, and
+ * snapshots not restored nor taken for {@link #IDLE_DAYS} days are deleted.
+ * 
+ * <p>
+ * On Unix nodes the copies are made with <tt>cp --reflink=auto</tt>, which
+ * clones the files instead of copying them on file systems that support it.
+ * Hard links are not used on purpose: Eclipse rewrites workspace files in
+ * place and would corrupt the snapshot.
+ * 
+ * 
+ * Disclaimer -  TIBCO, the TIBCO logo and 
+ * TIBCO Software are trademarks or 
+ * registered trademarks of TIBCO Software 
+ * Inc. in the United States and/or other 
+ * countries. All other product and company 
+ * names and marks mentioned are the property of their respective 
+ * owners.
+ * 
+ */
+public final class WorkspaceSnapshot {
+
+    /**
+     * Node root relative directory holding the snapshots.
+     */
+    public static final String SNAPSHOT_DIR = "tibco-ws-snapshots";
+
+    public static int REFRESH_DAYS = Integer.getInteger(WorkspaceSnapshot.class.getName() + ".refreshDays", 7);
+
+    public static int IDLE_DAYS = Integer.getInteger(WorkspaceSnapshot.class.getName() + ".idleDays", 14);
+
+    /**
+     * Suffixes of the files next to each snapshot whose times tell when the
+     * snapshot was taken and last used.
+     */
+    private static final String TAKEN = ".taken";
+    private static final String USED = ".used";
+
+    private final FilePath snapshot;
+
+    private WorkspaceSnapshot(FilePath snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Gets the snapshot of a job workspace for an executable version.
+     * 
+     * @param workspace
+     *            the workspace passed to <tt>-data</tt>, pooled or not
+     */
+    public static WorkspaceSnapshot of(Node node, AbstractBuild<?, ?> build, String workspace, String version) {
+        String key = build.getProject().getFullName() + '|' + workspace + '|' + version;
+        return new WorkspaceSnapshot(node.getRootPath().child(SNAPSHOT_DIR).child(Util.getDigestOf(key)));
+    }
+
+    /**
+     * Restores the snapshot into the <tt>.metadata</tt> of the workspace if
+     * the workspace has not been initialized yet, that is if its
+     * <tt>.metadata</tt> is missing or empty. The rest of the workspace is
+     * left alone.
+     * 
+     * @return true if the snapshot was restored
+     */
+    public boolean restore(FilePath workspace, Launcher launcher, TaskListener listener) throws IOException, InterruptedException {
+        FilePath metadata = workspace.child(".metadata");
+        FilePath saved = snapshot.child(".metadata");
+        if ((metadata.exists() && !metadata.list().isEmpty()) || !saved.exists())
+            return false;
+        metadata.mkdirs();
+        copy(saved, metadata, launcher, listener);
+        sibling(USED).touch(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Takes the snapshot of the workspace <tt>.metadata</tt>, unless there's
+     * already one younger than
+     * {@link #REFRESH_DAYS} days.
+     * 
+     * @return true if the snapshot was taken
+     */
+    public boolean save(FilePath workspace, Launcher launcher, TaskListener listener) throws IOException, InterruptedException {
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+        FilePath metadata = workspace.child(".metadata");
+        if (!metadata.exists())
+            return false;
+        if (snapshot.exists() && sibling(TAKEN).lastModified() > now - TimeUnit.DAYS.toMillis(REFRESH_DAYS))
+            return false;
+        FilePath tmp = sibling(".tmp");
+        tmp.deleteRecursive();
+        tmp.child(".metadata").mkdirs();
+        copy(metadata, tmp.child(".metadata"), launcher, listener);
+        // the Eclipse log is of no use to later builds
+        tmp.child(".metadata/.log").delete();
+        snapshot.deleteRecursive();
+        tmp.renameTo(snapshot);
+        sibling(TAKEN).touch(now);
+        sibling(USED).touch(now);
+        return true;
+    }
+
+    private FilePath sibling(String suffix) {
+        return snapshot.getParent().child(snapshot.getName() + suffix);
+    }
+
+    /**
+     * Deletes the other snapshots of the node not used for
+     * {@link #IDLE_DAYS} days.
+     */
+    private void evictIdle(long now) throws IOException, InterruptedException {
+        FilePath dir = snapshot.getParent();
+        if (!dir.exists())
+            return;
+        long limit = now - TimeUnit.DAYS.toMillis(IDLE_DAYS);
+        for (FilePath s : dir.listDirectories()) {
+            // temporary copies belong to saves in progress
+            if (s.getName().equals(snapshot.getName()) || s.getName().endsWith(".tmp"))
+                continue;
+            FilePath used = dir.child(s.getName() + USED);
+            if (used.lastModified() < limit) {
+                s.deleteRecursive();
+                used.delete();
+                dir.child(s.getName() + TAKEN).delete();
+            }
+        }
+    }
+
+    private static void copy(FilePath from, FilePath to, Launcher launcher, TaskListener listener) throws IOException, InterruptedException {
+        if (launcher.isUnix()) {
+            int r = launcher.launch().cmds("cp", "-a", "--reflink=auto", from.getRemote() + "/.", to.getRemote())
+                    .stdout(listener).join();
+            if (r == 0)
+                return;
+        }
+        from.copyRecursiveTo(to);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.axmeclipseant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+public class AntBatchTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void parsesFilesTargetsAndProperties() {
+        AntBatch batch = AntBatch.parse("# comment\n"
+                + "\n"
+                + "  a/build.xml clean package -Dx=1 -Dflag\n"
+                + "b/build.xml -Dmsg=\"two words\"\r\n");
+        List<AntBatch.Entry> entries = batch.getEntries();
+        assertEquals(2, entries.size());
+
+        AntBatch.Entry a = entries.get(0);
+        assertEquals(1, a.getIndex());
+        assertEquals("a/build.xml", a.getBuildFile());
+        assertEquals(Arrays.asList("clean", "package"), a.getTargets());
+        assertEquals("1", a.getProperties().get("x"));
+        assertEquals("", a.getProperties().get("flag"));
+        assertEquals("a/build.xml clean package", a.toString());
+
+        AntBatch.Entry b = entries.get(1);
+        assertEquals(2, b.getIndex());
+        assertEquals(Collections.emptyList(), b.getTargets());
+        assertEquals("two words", b.getProperties().get("msg"));
+
+        assertEquals(Arrays.asList("batch-1", "batch-2"), batch.getTargets());
+    }
+
+    @Test
+    public void emptySpec() {
+        assertTrue(AntBatch.parse(null).isEmpty());
+        assertTrue(AntBatch.parse("\n# only a comment\n").isEmpty());
+    }
+
+    @Test
+    public void buildScriptCallsEachEntryAndTouchesItsMarker() throws Exception {
+        AntBatch batch = AntBatch.parse("a/build.xml clean package -Dx=<a&b>\nb/build.xml");
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(batch.toBuildScript("/ws & \"co\""))));
+        Element project = doc.getDocumentElement();
+        assertEquals("/ws & \"co\"", project.getAttribute("basedir"));
+
+        NodeList targets = project.getElementsByTagName("target");
+        // two wrapper targets, plus the two nested targets of the first call
+        assertEquals(4, targets.getLength());
+        Element first = (Element) targets.item(0);
+        assertEquals("batch-1", first.getAttribute("name"));
+
+        Element ant = (Element) first.getElementsByTagName("ant").item(0);
+        assertEquals("a/build.xml", ant.getAttribute("antfile"));
+        assertEquals("false", ant.getAttribute("inheritAll"));
+        NodeList nested = ant.getElementsByTagName("target");
+        assertEquals("clean", ((Element) nested.item(0)).getAttribute("name"));
+        assertEquals("package", ((Element) nested.item(1)).getAttribute("name"));
+        Element property = (Element) ant.getElementsByTagName("property").item(0);
+        assertEquals("x", property.getAttribute("name"));
+        assertEquals("<a&b>", property.getAttribute("value"));
+
+        Element touch = (Element) first.getElementsByTagName("touch").item(0);
+        assertEquals("${" + AntBatch.RESULTS_PROPERTY + "}/1", touch.getAttribute("file"));
+    }
+
+    @Test
+    public void failedEntriesHaveNoMarker() throws Exception {
+        AntBatch batch = AntBatch.parse("a.xml\nb.xml\nc.xml");
+        File results = tmp.newFolder("results");
+        new File(results, "1").createNewFile();
+        new File(results, "3").createNewFile();
+        List<AntBatch.Entry> failed = batch.getFailed(new FilePath(results));
+        assertEquals(1, failed.size());
+        assertEquals("b.xml", failed.get(0).getBuildFile());
+    }
+}
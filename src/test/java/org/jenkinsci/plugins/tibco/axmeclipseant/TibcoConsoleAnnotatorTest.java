@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.axmeclipseant;
+
+import static org.junit.Assert.assertEquals;
+
+import hudson.console.ConsoleNote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jenkinsci.plugins.tibco.console.RuleNote;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class TibcoConsoleAnnotatorTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private TibcoConsoleAnnotator annotator;
+
+    /**
+     * Streams the lines through a new annotator.
+     * 
+     * @return the annotated output, one entry per line, line terminators
+     *         included
+     */
+    private List<String> annotate(String eol, String... lines) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        annotator = new TibcoConsoleAnnotator(out, UTF8, "build.xml");
+        for (String line : lines)
+            annotator.write((line + eol).getBytes(UTF8));
+        annotator.forceEol();
+        annotator.flush();
+        List<String> annotated = new ArrayList<String>();
+        for (String line : new String(out.toByteArray(), UTF8).split("(?<=\n)"))
+            annotated.add(line);
+        return annotated;
+    }
+
+    /**
+     * Gets the class of the note starting a line, or null.
+     */
+    private static Class<?> noteOf(String line) throws Exception {
+        if (!line.startsWith(ConsoleNote.PREAMBLE_STR))
+            return null;
+        return ConsoleNote.readFrom(new DataInputStream(new ByteArrayInputStream(line.getBytes(UTF8)))).getClass();
+    }
+
+    private void assertNotes(String eol, String[] lines, Class<?>... notes) throws Exception {
+        List<String> annotated = annotate(eol, lines);
+        assertEquals(lines.length, annotated.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals("line " + i, notes[i], noteOf(annotated.get(i)));
+            // the note is only prepended, the line itself goes through untouched
+            assertEquals("line " + i, lines[i] + eol, ConsoleNote.removeNotes(annotated.get(i)));
+        }
+    }
+
+    private static final String[] BUILD = {
+        "Buildfile: /ws/build.xml",
+        "",
+        "init:",
+        "    [echo] starting",
+        "compile:",
+        "",
+        "package:",
+        "    [echo] [ERROR] broken",
+        "",
+        "not a target:",
+        "BUILD SUCCESSFUL",
+        "BUILD SUCCESSFUL later",
+        "Total time: 1 second",
+    };
+
+    private static final Class<?>[] NOTES = {
+        null,
+        null,
+        TibcoTargetNote.class,
+        null,
+        // a header only follows an empty line
+        null,
+        null,
+        TibcoTargetNote.class,
+        RuleNote.class,
+        null,
+        null,
+        TibcoOutcomeNote.class,
+        null,
+        null,
+    };
+
+    @Test
+    public void notesOnTargetsOutcomeAndRules() throws Exception {
+        assertNotes("\n", BUILD, NOTES);
+    }
+
+    @Test
+    public void notesWithWindowsLineEnds() throws Exception {
+        assertNotes("\r\n", BUILD, NOTES);
+    }
+
+    @Test
+    public void targetsAreTimedInOrder() throws Exception {
+        annotate("\n", BUILD);
+        List<String> targets = new ArrayList<String>();
+        for (TargetTimingAction.Timing t : annotator.getTimings())
+            targets.add(t.getTarget());
+        assertEquals(Arrays.asList("init", "package"), targets);
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InputFingerprintTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File project;
+
+    @Before
+    public void createProject() throws IOException {
+        project = tmp.newFolder("project");
+        write("build.xml", "<project/>");
+        write("src/a.bpel", "a");
+    }
+
+    private File write(String path, String content) throws IOException {
+        File f = new File(project, path);
+        FileUtils.writeStringToFile(f, content);
+        return f;
+    }
+
+    private String fingerprint(String... excluded) throws IOException {
+        InputFingerprint fp = new InputFingerprint(new FilePath(project), null);
+        for (String e : excluded)
+            fp.exclude(new FilePath(new File(project, e)));
+        return fp.call();
+    }
+
+    @Test
+    public void sourceChangesChangeTheFingerprint() throws IOException {
+        String before = fingerprint();
+        write("src/a.bpel", "b");
+        assertFalse(before.equals(fingerprint()));
+    }
+
+    @Test
+    public void vcsAndEclipseMetadataAreIgnored() throws IOException {
+        String before = fingerprint();
+        write(".git/index", "1");
+        write(".svn/wc.db", "1");
+        write("ws/.metadata/.log", "1");
+        write("src/.metadata/.plugins/x", "1");
+        assertEquals(before, fingerprint());
+    }
+
+    @Test
+    public void excludedPathsAreIgnored() throws IOException {
+        String before = fingerprint("ws", "tibco-gc.log", "tibco-logs", "out.daa");
+        write("ws/.index", "1");
+        write("tibco-gc.log", "1");
+        write("tibco-logs/build.log", "1");
+        write("out.daa", "1");
+        assertEquals(before, fingerprint("ws", "tibco-gc.log", "tibco-logs", "out.daa"));
+    }
+
+    @Test
+    public void labelledFilesIgnoreTheirName() throws IOException {
+        File a = write("../a.tra", "x=1");
+        File b = write("../b.tra", "x=1");
+        String fa = new InputFingerprint(null, null).file("tra", a.getPath()).call();
+        String fb = new InputFingerprint(null, null).file("tra", b.getPath()).call();
+        assertEquals(fa, fb);
+        assertFalse(fa.equals(new InputFingerprint(null, null).file(a.getPath()).call()));
+        assertFalse(fa.equals(new InputFingerprint(null, null).file(b.getPath()).call()));
+    }
+
+    @Test
+    public void linkCyclesAreFollowedOnce() throws Exception {
+        assumeTrue(File.pathSeparatorChar == ':');
+        String before = fingerprint();
+        Process ln = new ProcessBuilder("ln", "-s", project.getPath(), new File(project, "src/loop").getPath()).start();
+        assertEquals(0, ln.waitFor());
+        String linked = fingerprint();
+        assertFalse(before.equals(linked));
+        assertEquals(linked, fingerprint());
+    }
+}
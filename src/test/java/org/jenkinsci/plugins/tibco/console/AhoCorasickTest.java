@@ -0,0 +1,110 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AhoCorasickTest {
+
+    private static AhoCorasick automaton(String... patterns) {
+        List<byte[]> bytes = new ArrayList<byte[]>();
+        for (String p : patterns)
+            bytes.add(AsciiLine.bytes(p));
+        return new AhoCorasick(bytes);
+    }
+
+    private static int match(AhoCorasick a, String line) {
+        byte[] b = AsciiLine.bytes(line);
+        return a.match(b, b.length);
+    }
+
+    @Test
+    public void findsEachPattern() {
+        AhoCorasick a = automaton("ERROR", "WARN", "Exception");
+        assertEquals(0, match(a, "[javac] ERROR in Foo.java"));
+        assertEquals(1, match(a, "WARNING: deprecated"));
+        assertEquals(2, match(a, "java.lang.NullPointerException"));
+        assertEquals(-1, match(a, "BUILD SUCCESSFUL"));
+        assertEquals(-1, match(a, ""));
+    }
+
+    @Test
+    public void lowestIndexWins() {
+        AhoCorasick a = automaton("WARN", "ERROR");
+        assertEquals(0, match(a, "ERROR then WARN"));
+        assertEquals(1, match(a, "ERROR only"));
+    }
+
+    @Test
+    public void patternsInsideOtherPatterns() {
+        // "he" ends inside "she", "hers" shares its prefix with "he": the failure links must report both
+        AhoCorasick a = automaton("hers", "she", "he");
+        assertEquals(2, match(a, "uhe"));
+        assertEquals(1, match(a, "ushe"));
+        assertEquals(0, match(a, "ushers"));
+        assertEquals(-1, match(a, "shh"));
+    }
+
+    @Test
+    public void onlyTheGivenLengthIsSearched() {
+        AhoCorasick a = automaton("ERROR");
+        byte[] b = AsciiLine.bytes("line ERROR");
+        assertEquals(-1, a.match(b, 7));
+        assertEquals(0, a.match(b, b.length));
+    }
+
+    @Test
+    public void bytesAboveAscii() {
+        List<byte[]> patterns = new ArrayList<byte[]>();
+        patterns.add(new byte[] { (byte) 0xc3, (byte) 0xa9 });
+        AhoCorasick a = new AhoCorasick(patterns);
+        byte[] b = { 'c', 'a', 'f', (byte) 0xc3, (byte) 0xa9 };
+        assertEquals(0, a.match(b, b.length));
+        assertEquals(-1, a.match(b, 4));
+    }
+
+    @Test
+    public void agreesWithNaiveSearch() {
+        String[] patterns = { "ab", "abab", "bab", "ba", "aab", "bbb" };
+        AhoCorasick a = automaton(patterns);
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder line = new StringBuilder();
+            int len = random.nextInt(12);
+            for (int i = 0; i < len; i++)
+                line.append(random.nextBoolean() ? 'a' : 'b');
+            int expected = -1;
+            for (int i = 0; i < patterns.length && expected < 0; i++)
+                if (line.indexOf(patterns[i]) >= 0)
+                    expected = i;
+            assertEquals(line.toString(), expected, match(a, line.toString()));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class LogReducerTest {
+
+    private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream full = new ByteArrayOutputStream();
+
+    private LogReducer reduce(int tailLines, String output) throws Exception {
+        LogReducer reducer = new LogReducer(console, full, tailLines);
+        reducer.write(output.getBytes("US-ASCII"));
+        reducer.close();
+        return reducer;
+    }
+
+    private static String lines(String... lines) {
+        StringBuilder buf = new StringBuilder();
+        for (String line : lines)
+            buf.append(line).append('\n');
+        return buf.toString();
+    }
+
+    @Test
+    public void keepsHeadersOutcomeAndProblemsWithContext() throws Exception {
+        String output = lines(
+                "Buildfile: /ws/build.xml",
+                "",
+                "init:",
+                "    [echo] one",
+                "    [echo] two",
+                "",
+                "compile:",
+                "    [javac] 1. ERROR in Foo.java (at line 5)",
+                "    [javac] \tint x = \"a\";",
+                "    [javac] \t        ^^^",
+                "    [javac] Type mismatch",
+                "    [javac] ----------",
+                "",
+                "BUILD FAILED",
+                "Total time: 1 second");
+        LogReducer reducer = reduce(5, output);
+        assertEquals(output, full.toString("US-ASCII"));
+        assertEquals(lines(
+                "",
+                "init:",
+                "",
+                "compile:",
+                "    [javac] 1. ERROR in Foo.java (at line 5)",
+                "    [javac] \tint x = \"a\";",
+                "    [javac] \t        ^^^",
+                "    [javac] Type mismatch",
+                "BUILD FAILED",
+                // the context of the failure
+                "Total time: 1 second"), console.toString("US-ASCII"));
+        assertEquals(7, reducer.getOmitted());
+    }
+
+    @Test
+    public void headerAfterAKeptEmptyLineGetsNoExtraOne() throws Exception {
+        reduce(5, lines(
+                "[ERROR] broken",
+                "",
+                "next:",
+                "    [echo] context",
+                "    [echo] quiet",
+                "",
+                "last:"));
+        assertEquals(lines("[ERROR] broken", "", "next:", "    [echo] context", "", "last:"), console.toString("US-ASCII"));
+    }
+
+    @Test
+    public void tailHoldsTheLastLines() throws Exception {
+        LogReducer reducer = reduce(3, lines("a", "b", "c", "d", "e"));
+        assertEquals("", console.toString("US-ASCII"));
+        reducer.writeTail();
+        assertEquals(lines("c", "d", "e"), console.toString("US-ASCII"));
+    }
+
+    @Test
+    public void tailOfAShortOutput() throws Exception {
+        LogReducer reducer = reduce(10, lines("a", "a much longer line than the first one"));
+        reducer.writeTail();
+        assertEquals(lines("a", "a much longer line than the first one"), console.toString("US-ASCII"));
+    }
+
+    @Test
+    public void unterminatedLastLine() throws Exception {
+        LogReducer reducer = reduce(2, "a\nBUILD SUCCESSFUL");
+        assertEquals("BUILD SUCCESSFUL", console.toString("US-ASCII"));
+        assertEquals("a\nBUILD SUCCESSFUL", full.toString("US-ASCII"));
+        assertEquals(1, reducer.getOmitted());
+    }
+}
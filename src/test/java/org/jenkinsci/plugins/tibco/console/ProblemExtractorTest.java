@@ -0,0 +1,172 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProblemExtractorTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static ProblemExtractor extract(String... lines) {
+        ProblemExtractor extractor = new ProblemExtractor("build.xml", UTF8);
+        for (String line : lines) {
+            byte[] b = line.getBytes(UTF8);
+            extractor.line(b, b.length);
+        }
+        extractor.finish();
+        return extractor;
+    }
+
+    private static void assertProblem(Problem p, String severity, String file, int line, String message) {
+        assertEquals("build.xml", p.getStep());
+        assertEquals(severity, p.getSeverity());
+        assertEquals(file, p.getFile());
+        assertEquals(line, p.getLine());
+        assertEquals(message, p.getMessage());
+    }
+
+    @Test
+    public void javacProblems() {
+        List<Problem> problems = extract(
+                "    [javac] /ws/src/Foo.java:12: error: cannot find symbol",
+                "    [javac]     Bar bar;",
+                "    [javac] /ws/src/Foo.java:7: warning: [deprecation] old() in Foo has been deprecated",
+                "    [javac] C:\\ws\\src\\Baz.java:3:14: ';' expected").getProblems();
+        assertEquals(3, problems.size());
+        assertProblem(problems.get(0), AnnotationRule.ERROR, "/ws/src/Foo.java", 12, "cannot find symbol");
+        assertProblem(problems.get(1), AnnotationRule.WARNING, "/ws/src/Foo.java", 7, "[deprecation] old() in Foo has been deprecated");
+        assertProblem(problems.get(2), AnnotationRule.ERROR, "C:\\ws\\src\\Baz.java", 3, "';' expected");
+    }
+
+    @Test
+    public void eclipseCompilerProblemTakesTheMessageBelowTheCaret() {
+        ProblemExtractor extractor = extract(
+                "    [javac] ----------",
+                "    [javac] 1. ERROR in /ws/src/Foo.java (at line 5)",
+                "    [javac] \tint x = \"a\";",
+                "    [javac] \t        ^^^",
+                "    [javac] Type mismatch: cannot convert from String to int",
+                "    [javac] ----------",
+                "    [javac] 2. WARNING in /ws/src/Foo.java (at line 9)",
+                "    [javac] \timport java.util.List;",
+                "    [javac] \t       ^^^^^^^^^^^^^^",
+                "    [javac] The import java.util.List is never used");
+        List<Problem> problems = extractor.getProblems();
+        assertEquals(2, problems.size());
+        assertProblem(problems.get(0), AnnotationRule.ERROR, "/ws/src/Foo.java", 5, "Type mismatch: cannot convert from String to int");
+        assertProblem(problems.get(1), AnnotationRule.WARNING, "/ws/src/Foo.java", 9, "The import java.util.List is never used");
+        assertEquals(1, extractor.getErrors());
+        assertEquals(1, extractor.getWarnings());
+    }
+
+    @Test
+    public void eclipseCompilerProblemWithoutCaret() {
+        List<Problem> problems = extract(
+                "1. ERROR in /ws/src/Foo.java (at line 5)",
+                "a", "b", "c", "d", "e", "f",
+                "[ERROR] next").getProblems();
+        assertEquals(2, problems.size());
+        assertProblem(problems.get(0), AnnotationRule.ERROR, "/ws/src/Foo.java", 5, "");
+        assertProblem(problems.get(1), AnnotationRule.ERROR, null, 0, "next");
+    }
+
+    @Test
+    public void eclipseCompilerProblemAtTheEnd() {
+        List<Problem> problems = extract("2. WARNING in /ws/src/Foo.java (at line 1)").getProblems();
+        assertEquals(1, problems.size());
+        assertProblem(problems.get(0), AnnotationRule.WARNING, "/ws/src/Foo.java", 1, "");
+    }
+
+    @Test
+    public void lineNumbersTooLargeForALineAreRecordedAsZero() {
+        List<Problem> problems = extract(
+                "x.xml:20240101123456: error: stamped",
+                "1. ERROR in /ws/src/Foo.java (at line 99999999999)",
+                "    [javac] \t^",
+                "    [javac] huge").getProblems();
+        assertEquals(2, problems.size());
+        assertProblem(problems.get(0), AnnotationRule.ERROR, "x.xml", 0, "stamped");
+        assertProblem(problems.get(1), AnnotationRule.ERROR, "/ws/src/Foo.java", 0, "huge");
+    }
+
+    @Test
+    public void severityPrefixes() {
+        List<Problem> problems = extract(
+                "[ERROR] Validation failed for Process.bwp",
+                "  [validate] WARNING: unused variable",
+                "[WARN] slow",
+                "ERROR : spaced").getProblems();
+        assertEquals(4, problems.size());
+        assertProblem(problems.get(0), AnnotationRule.ERROR, null, 0, "Validation failed for Process.bwp");
+        assertProblem(problems.get(1), AnnotationRule.WARNING, null, 0, "unused variable");
+        assertProblem(problems.get(2), AnnotationRule.WARNING, null, 0, "slow");
+        assertProblem(problems.get(3), AnnotationRule.ERROR, null, 0, "spaced");
+    }
+
+    @Test
+    public void ordinaryLinesAreNotProblems() {
+        ProblemExtractor extractor = extract(
+                "Buildfile: /ws/build.xml",
+                "    [echo] No errors found",
+                "    [echo] see errors.html",
+                "BUILD SUCCESSFUL",
+                "Total time: 3 seconds");
+        assertTrue(extractor.getProblems().isEmpty());
+        assertEquals(0, extractor.getErrors());
+        assertEquals(0, extractor.getWarnings());
+    }
+
+    @Test
+    public void problemsAreCappedButCounted() {
+        int max = ProblemExtractor.MAX_PROBLEMS;
+        ProblemExtractor.MAX_PROBLEMS = 2;
+        try {
+            ProblemExtractor extractor = extract("[ERROR] a", "[ERROR] b", "[ERROR] c", "[WARNING] d");
+            assertEquals(2, extractor.getProblems().size());
+            assertEquals(3, extractor.getErrors());
+            assertEquals(1, extractor.getWarnings());
+        } finally {
+            ProblemExtractor.MAX_PROBLEMS = max;
+        }
+    }
+
+    @Test
+    public void longMessagesAreTruncated() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < ProblemExtractor.MAX_MESSAGE + 100; i++)
+            message.append('x');
+        Problem p = extract("[ERROR] " + message).getProblems().get(0);
+        assertEquals(ProblemExtractor.MAX_MESSAGE + 3, p.getMessage().length());
+        assertTrue(p.getMessage().endsWith("..."));
+        assertNull(p.getFile());
+    }
+}
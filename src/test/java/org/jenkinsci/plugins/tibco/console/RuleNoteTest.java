@@ -0,0 +1,52 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.console;
+
+import static org.junit.Assert.assertEquals;
+
+import hudson.MarkupText;
+
+import org.junit.Test;
+
+public class RuleNoteTest {
+
+    private static String annotate(String severity, String line) {
+        MarkupText text = new MarkupText(line);
+        new RuleNote(severity).annotate(null, text, 0);
+        return text.toString(false);
+    }
+
+    @Test
+    public void knownSeverityBecomesAClass() {
+        assertEquals("<span class=tibco-rule-error>BundleException</span>", annotate(AnnotationRule.ERROR, "BundleException"));
+        assertEquals("<span class=tibco-rule-warning>[WARNING] x</span>", annotate(AnnotationRule.WARNING, "[WARNING] x"));
+    }
+
+    @Test
+    public void forgedSeverityIsIgnored() {
+        assertEquals("line", annotate("error onmouseover=alert(1)", "line"));
+        assertEquals("line", annotate("x><script>alert(1)</script", "line"));
+        assertEquals("line", annotate(null, "line"));
+    }
+}
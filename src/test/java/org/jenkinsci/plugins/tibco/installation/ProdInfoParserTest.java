@@ -0,0 +1,108 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProdInfoParserTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File prodInfo(String xml) throws IOException {
+        File f = tmp.newFile("prodInfo.xml");
+        FileUtils.writeStringToFile(f, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml, "UTF-8");
+        return f;
+    }
+
+    @Test
+    public void amxEclipseAntOfTheSdsCoreFeature() throws Exception {
+        File f = prodInfo("<TIBCOInstallerFeatures>"
+                + "<installerFeature name=\"other\"><assemblyList>"
+                + "<assembly uid=\"product_tibco_com_tibco_amx_eclipse_ant\" installLocation=\"wrong\" version=\"0.1\"/>"
+                + "</assemblyList></installerFeature>"
+                + "<installerFeature name=\"sds-core\"><assemblyList>"
+                + "<assembly uid=\"product_tibco_com_tibco_other\" installLocation=\"other\" version=\"9.9\"/>"
+                + "<assembly uid=\"product_tibco_com_tibco_amx_eclipse_ant\" installLocation=\"amx/3.3\" version=\"3.3.0.005\"/>"
+                + "</assemblyList></installerFeature>"
+                + "</TIBCOInstallerFeatures>");
+        assertArrayEquals(new String[] { "amx/3.3", "3.3.0.005" }, ProdInfoParser.readAmxEclipseAnt(f));
+    }
+
+    @Test
+    public void amxEclipseAntOutsideTheFeatureIsIgnored() throws Exception {
+        File f = prodInfo("<TIBCOInstallerFeatures>"
+                + "<installerFeature name=\"sds-core\"><assemblyList/></installerFeature>"
+                + "<assembly uid=\"product_tibco_com_tibco_amx_eclipse_ant\" installLocation=\"wrong\" version=\"0.1\"/>"
+                + "</TIBCOInstallerFeatures>");
+        assertNull(ProdInfoParser.readAmxEclipseAnt(f));
+    }
+
+    @Test
+    public void missingAttributesAreEmpty() throws Exception {
+        File f = prodInfo("<TIBCOInstallerFeatures>"
+                + "<installerFeature name=\"sds-core\"><assemblyList>"
+                + "<assembly uid=\"product_tibco_com_tibco_amx_eclipse_ant\" installLocation=\"amx\"/>"
+                + "</assemblyList></installerFeature>"
+                + "</TIBCOInstallerFeatures>");
+        assertArrayEquals(new String[] { "amx", "" }, ProdInfoParser.readAmxEclipseAnt(f));
+    }
+
+    @Test
+    public void businessEventsProduct() throws Exception {
+        File f = prodInfo("<TIBCOInstallerFeatures>"
+                + "<productDef compatDisplayName=\"TIBCO Runtime Agent\" installDir=\"tra/5.8\" version=\"5.8.0\"/>"
+                + "<productDef compatDisplayName=\"TIBCO BusinessEvents\" installDir=\"be/5.1\" version=\"5.1.1\"/>"
+                + "</TIBCOInstallerFeatures>");
+        assertArrayEquals(new String[] { "be/5.1", "5.1.1" }, ProdInfoParser.readBusinessEvents(f));
+    }
+
+    @Test
+    public void noBusinessEventsProduct() throws Exception {
+        File f = prodInfo("<TIBCOInstallerFeatures>"
+                + "<productDef compatDisplayName=\"TIBCO Runtime Agent\" installDir=\"tra/5.8\" version=\"5.8.0\"/>"
+                + "</TIBCOInstallerFeatures>");
+        assertNull(ProdInfoParser.readBusinessEvents(f));
+    }
+
+    @Test
+    public void externalEntitiesAreNotResolved() throws Exception {
+        File secret = tmp.newFile("secret.txt");
+        FileUtils.writeStringToFile(secret, "secret");
+        File f = prodInfo("<!DOCTYPE TIBCOInstallerFeatures [<!ENTITY x SYSTEM \"" + secret.toURI() + "\">]>"
+                + "<TIBCOInstallerFeatures>"
+                + "<productDef compatDisplayName=\"TIBCO BusinessEvents\" installDir=\"be\" version=\"5.1\"/>"
+                + "</TIBCOInstallerFeatures>");
+        assertArrayEquals(new String[] { "be", "5.1" }, ProdInfoParser.readBusinessEvents(f));
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.installation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.plugins.tibco.installation.TibcoArchiveInstaller.Format;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TibcoArchiveInstallerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void formatIsToldByTheExtension() {
+        assertEquals(Format.ZIP, Format.of("/mnt/tibco/amx-3.3.zip"));
+        assertEquals(Format.ZIP, Format.of("C:\\TIBCO\\AMX.ZIP"));
+        assertEquals(Format.TAR_GZ, Format.of("/mnt/tibco/amx-3.3.tar.gz"));
+        assertEquals(Format.TAR_GZ, Format.of("/mnt/tibco/amx-3.3.tgz"));
+        assertEquals(Format.TAR, Format.of("/mnt/tibco/amx-3.3.tar"));
+    }
+
+    @Test
+    public void otherExtensionsAreRejected() {
+        assertNull(Format.of("/mnt/tibco/amx-3.3.tar.bz2"));
+        assertNull(Format.of("/mnt/tibco/amx-3.3.gz"));
+        assertNull(Format.of("/mnt/tibco/amx-3.3"));
+    }
+
+    private static long daysAgo(int days) {
+        return System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+    }
+
+    private File unpacked(String name, int idleDays) throws IOException {
+        File dir = tmp.newFolder(name);
+        File marker = new File(dir, ".tibco-installed");
+        marker.createNewFile();
+        marker.setLastModified(daysAgo(idleDays));
+        return dir;
+    }
+
+    @Test
+    public void idleArchivesAndDigestsAreEvicted() throws IOException {
+        int idle = TibcoArchiveInstaller.IDLE_DAYS;
+        File used = unpacked("used", 1);
+        File old = unpacked("old", idle + 1);
+        File current = unpacked("current", idle + 1);
+        File failed = tmp.newFolder("failed.tmp");
+        failed.setLastModified(daysAgo(idle + 1));
+        File digests = tmp.newFolder(".digests");
+        File oldDigest = new File(digests, "a");
+        oldDigest.createNewFile();
+        oldDigest.setLastModified(daysAgo(idle + 1));
+        File usedDigest = new File(digests, "b");
+        usedDigest.createNewFile();
+
+        TibcoArchiveInstaller.evictIdle(tmp.getRoot(), "current");
+        assertTrue(used.exists());
+        assertFalse(old.exists());
+        // the archive being installed is kept whatever its time
+        assertTrue(current.exists());
+        assertFalse(failed.exists());
+        assertFalse(oldDigest.exists());
+        assertTrue(usedDigest.exists());
+    }
+}
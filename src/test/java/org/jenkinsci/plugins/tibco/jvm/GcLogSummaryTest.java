@@ -0,0 +1,148 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.jvm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jenkinsci.plugins.tibco.tra.TraFile;
+import org.junit.Test;
+
+public class GcLogSummaryTest {
+
+    private static GcLogSummary parse(String log) throws Exception {
+        return GcLogSummary.parse(new StringReader(log));
+    }
+
+    @Test
+    public void legacyLog() throws Exception {
+        GcLogSummary s = parse("Java HotSpot(TM) 64-Bit Server VM (25.151-b12)\n"
+                + "1.000: [GC (Allocation Failure)  262144K->65536K(1048576K), 0.0500000 secs]\n"
+                + "5.000: [Full GC (Ergonomics)  524288K->131072K(1048576K), 0.2500000 secs]\n"
+                + "10.000: [GC (Allocation Failure)  393216K->196608K(1048576K), 0.0500000 secs]\n");
+        assertEquals(3, s.getPauses());
+        assertEquals(1, s.getFullPauses());
+        assertEquals(350, s.getTotalPauseMillis());
+        assertEquals(250, s.getMaxPauseMillis());
+        assertEquals(512, s.getPeakHeapMegabytes());
+        assertEquals(1024, s.getCommittedHeapMegabytes());
+        // after a full GC, young pauses no longer raise the live set
+        assertEquals(128, s.getLiveHeapMegabytes());
+        assertEquals(3.5, s.getOverhead(), 0.001);
+    }
+
+    @Test
+    public void unifiedLog() throws Exception {
+        GcLogSummary s = parse("[0.010s][info][gc] Using G1\n"
+                + "[2.000s][info][gc] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 100M->40M(256M) 4.000ms\n"
+                + "[4.000s][info][gc] GC(1) Pause Full (System.gc()) 1G->64M(2G) 16.000ms\n");
+        assertEquals(2, s.getPauses());
+        assertEquals(1, s.getFullPauses());
+        assertEquals(20, s.getTotalPauseMillis());
+        assertEquals(1024, s.getPeakHeapMegabytes());
+        assertEquals(2048, s.getCommittedHeapMegabytes());
+        assertEquals(64, s.getLiveHeapMegabytes());
+        assertEquals(0.5, s.getOverhead(), 0.001);
+    }
+
+    @Test
+    public void youngPausesBoundTheLiveSetUntilAFullOne() throws Exception {
+        GcLogSummary s = parse("1.0: [GC (Allocation Failure)  200000K->102400K(400000K), 0.01 secs]\n"
+                + "2.0: [GC (Allocation Failure)  200000K->51200K(400000K), 0.01 secs]\n");
+        assertEquals(0, s.getFullPauses());
+        assertEquals(100, s.getLiveHeapMegabytes());
+    }
+
+    @Test
+    public void noPauses() throws Exception {
+        GcLogSummary s = parse("nothing to see\n");
+        assertTrue(s.isEmpty());
+        assertEquals(-1, s.recommendHeapMegabytes(1024, 1024));
+    }
+
+    @Test
+    public void recommendedHeap() throws Exception {
+        // 100 MB live set, 2.5 times is 250 MB, at least 256 MB
+        GcLogSummary s = parse("100.0: [Full GC (Ergonomics)  524288K->102400K(1048576K), 0.1 secs]\n");
+        assertFalse(s.isEmpty());
+        assertEquals(256, s.recommendHeapMegabytes(1024, -1));
+
+        // 130 MB live set, 2.5 times is 325 MB, rounded up to 384 MB
+        s = parse("100.0: [Full GC (Ergonomics)  524288K->133120K(1048576K), 0.1 secs]\n");
+        assertEquals(384, s.recommendHeapMegabytes(1024, -1));
+
+        // a small live set still gets 256 MB
+        s = parse("100.0: [Full GC (Ergonomics)  10240K->10240K(65536K), 0.1 secs]\n");
+        assertEquals(256, s.recommendHeapMegabytes(64, -1));
+
+        // 50% of the run in GC: at least half again the current heap
+        s = parse("2.0: [Full GC (Ergonomics)  524288K->131072K(1048576K), 1.0 secs]\n");
+        assertEquals(1536, s.recommendHeapMegabytes(1024, -1));
+        assertEquals(320, s.recommendHeapMegabytes(-1, -1));
+    }
+
+    @Test
+    public void overheadIsMeasuredOverTheWholeRun() throws Exception {
+        GcLogSummary s = parse("2.0: [Full GC (Ergonomics)  524288K->131072K(1048576K), 1.0 secs]\n");
+        assertEquals(50, s.getOverhead(), 0.001);
+        // the run went on for long after its last GC
+        s.setRunSeconds(100);
+        assertEquals(1, s.getOverhead(), 0.001);
+        assertEquals(320, s.recommendHeapMegabytes(1024, -1));
+        // a run time shorter than the log, like a clock skew, doesn't count
+        s.setRunSeconds(1);
+        assertEquals(50, s.getOverhead(), 0.001);
+    }
+
+    @Test
+    public void recommendedHeapIsBoundedByTheConfiguredOne() throws Exception {
+        GcLogSummary s = parse("2.0: [Full GC (Ergonomics)  524288K->131072K(1048576K), 1.0 secs]\n");
+        // a run with a recommended heap of 1536 MB would get 2304 MB, but the TRA says 1024 MB
+        assertEquals(2048, s.recommendHeapMegabytes(1536, 1024));
+        assertEquals(2048, s.recommendHeapMegabytes(2048, 1024));
+        assertEquals(1536, s.recommendHeapMegabytes(1024, 1024));
+    }
+
+    @Test
+    public void jvmOptionsAreAddedToTheExtendedProperties() {
+        TraFile base = new TraFile(Collections.singletonMap(TraFile.EXTENDED_PROPERTIES, "-Dfoo=bar "));
+        Map<String, String> overrides = new HashMap<String, String>();
+        GcLogSummary.addJvmOptions(base, overrides, "/ws/tibco-gc.log");
+        assertEquals("-Dfoo=bar -Xloggc:/ws/tibco-gc.log", overrides.get(TraFile.EXTENDED_PROPERTIES));
+
+        overrides.put(TraFile.EXTENDED_PROPERTIES, "-Dother=1");
+        GcLogSummary.addJvmOptions(base, overrides, "gc.log");
+        assertEquals("-Dother=1 -Xloggc:gc.log", overrides.get(TraFile.EXTENDED_PROPERTIES));
+
+        overrides.clear();
+        GcLogSummary.addJvmOptions(new TraFile(Collections.<String, String> emptyMap()), overrides, "gc.log");
+        assertEquals("-Xloggc:gc.log", overrides.get(TraFile.EXTENDED_PROPERTIES));
+    }
+}
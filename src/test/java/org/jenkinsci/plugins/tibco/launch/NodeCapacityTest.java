@@ -0,0 +1,66 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.launch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NodeCapacityTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private long memAvailable(String content) throws IOException {
+        File f = tmp.newFile("meminfo");
+        FileUtils.writeStringToFile(f, content);
+        return NodeCapacity.memAvailable(f);
+    }
+
+    @Test
+    public void readsMemAvailableInMegabytes() throws IOException {
+        assertEquals(7933, memAvailable(
+                "MemTotal:       16303428 kB\n"
+                + "MemFree:          412340 kB\n"
+                + "MemAvailable:    8123456 kB\n"
+                + "Buffers:          201236 kB\n"));
+    }
+
+    @Test
+    public void missingEntryOrFileGivesMinusOne() throws IOException {
+        assertEquals(-1, memAvailable("MemTotal:       16303428 kB\nMemFree:          412340 kB\n"));
+        assertEquals(-1, NodeCapacity.memAvailable(new File(tmp.getRoot(), "none")));
+    }
+
+    @Test
+    public void unreadableEntryGivesMinusOne() throws IOException {
+        assertEquals(-1, memAvailable("MemAvailable:    lots\n"));
+    }
+}
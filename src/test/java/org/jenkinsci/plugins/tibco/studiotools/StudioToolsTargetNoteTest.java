@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.studiotools;
+
+import static org.junit.Assert.assertEquals;
+
+import hudson.MarkupText;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class StudioToolsTargetNoteTest {
+
+    /**
+     * A long line with no colon, the worst case of the old ".*(?=:)" pattern.
+     */
+    private static String longLine() {
+        char[] line = new char[200000];
+        Arrays.fill(line, 'x');
+        return new String(line);
+    }
+
+    private static String target(String line) {
+        MarkupText text = new MarkupText(line);
+        new StudioToolsTargetNote().annotate(null, text, 0);
+        return text.toString(false);
+    }
+
+    private static String outcome(String line) {
+        MarkupText text = new MarkupText(line);
+        new StudioToolsOutcomeNote().annotate(null, text, 0);
+        return text.toString(false);
+    }
+
+    @Test
+    public void targetNameRunsUpToTheLastColon() {
+        assertEquals("<b class=ant-target>init</b>:", target("init:"));
+        assertEquals("<b class=ant-target>a:b</b>:", target("a:b:"));
+        assertEquals("no target", target("no target"));
+    }
+
+    @Test(timeout = 1000)
+    public void longLineWithoutColonRendersInLinearTime() {
+        String line = longLine();
+        for (int i = 0; i < 20; i++)
+            assertEquals(line, target(line));
+    }
+
+    @Test
+    public void outcomeStyleFollowsTheResult() {
+        assertEquals("<span class=tibco-ant-outcome-success>BUILD SUCCESSFUL</span>", outcome("BUILD SUCCESSFUL"));
+        assertEquals("<span class=tibco-ant-outcome-failure>BUILD FAILED</span>", outcome("BUILD FAILED"));
+        assertEquals("BUILD ", outcome("BUILD "));
+    }
+
+    @Test(timeout = 1000)
+    public void longOutcomeLineRendersInLinearTime() {
+        String line = "BUILD FAILED " + longLine();
+        for (int i = 0; i < 20; i++)
+            assertEquals("<span class=tibco-ant-outcome-failure>" + line + "</span>", outcome(line));
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.tra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TraFileTest {
+
+    private static TraFile parse(String tra) throws Exception {
+        return TraFile.parse(new StringReader(tra));
+    }
+
+    @Test
+    public void separatorsCommentsAndBlankLines() throws Exception {
+        TraFile tra = parse("# comment\n"
+                + "! other comment\n"
+                + "\n"
+                + "java.heap.size.initial=256M\n"
+                + "java.heap.size.max : 1024M\n"
+                + "  tibco.env.TIBCO_HOME   /opt/tibco  \n"
+                + "empty=\n");
+        assertEquals("256M", tra.getHeapInitial());
+        assertEquals("1024M", tra.getHeapMax());
+        assertEquals("/opt/tibco", tra.get("tibco.env.TIBCO_HOME"));
+        assertEquals("", tra.get("empty"));
+        assertNull(tra.get("# comment"));
+        assertEquals(4, tra.getProperties().size());
+    }
+
+    @Test
+    public void valueKeepsLaterSeparators() throws Exception {
+        TraFile tra = parse("java.extended.properties=-Dfoo=bar -Durl=http://host:80\n");
+        assertEquals("-Dfoo=bar -Durl=http://host:80", tra.getExtendedProperties());
+    }
+
+    @Test
+    public void envWithoutPrefix() throws Exception {
+        TraFile tra = parse("tibco.env.TIBCO_HOME=/opt/tibco\ntibco.env.PATH=/bin\nother=1\n");
+        Map<String, String> env = tra.getEnv();
+        assertEquals(2, env.size());
+        assertEquals("/opt/tibco", env.get("TIBCO_HOME"));
+        assertEquals("/bin", env.get("PATH"));
+    }
+
+    @Test
+    public void overlayReplacesAndAddsInOrder() throws Exception {
+        TraFile tra = parse("a=1\nb=2\n");
+        Map<String, String> overrides = new LinkedHashMap<String, String>();
+        overrides.put("b", "3");
+        overrides.put("c", "4");
+        StringWriter w = new StringWriter();
+        tra.overlay(overrides).write(w);
+        assertEquals("a=1\nb=3\nc=4\n", w.toString().replace("\r\n", "\n"));
+        assertEquals("2", tra.get("b"));
+    }
+
+    @Test
+    public void writtenFileParsesBack() throws Exception {
+        TraFile tra = parse("java.heap.size.max=512m\ntibco.class.path.extended=/a.jar:/b.jar\n");
+        StringWriter w = new StringWriter();
+        tra.write(w);
+        assertEquals(tra.getProperties(), parse(w.toString()).getProperties());
+        assertEquals(Collections.singletonMap("x", "y"), parse("x=y").getProperties());
+    }
+
+    @Test
+    public void toMegabytes() {
+        assertEquals(512, TraFile.toMegabytes("512m"));
+        assertEquals(512, TraFile.toMegabytes("512M"));
+        assertEquals(2048, TraFile.toMegabytes("2G"));
+        assertEquals(1, TraFile.toMegabytes("1024k"));
+        assertEquals(3, TraFile.toMegabytes("3145728"));
+        assertEquals(-1, TraFile.toMegabytes(null));
+        assertEquals(-1, TraFile.toMegabytes(""));
+        assertEquals(-1, TraFile.toMegabytes("lots"));
+        assertEquals(-1, TraFile.toMegabytes("12X"));
+    }
+
+    @Test
+    public void heapMaxMegabytes() throws Exception {
+        assertEquals(1024, parse("java.heap.size.max=1g\n").getHeapMaxMegabytes());
+        assertEquals(-1, parse("other=1\n").getHeapMaxMegabytes());
+    }
+}
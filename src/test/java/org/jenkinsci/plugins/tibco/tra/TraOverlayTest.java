@@ -0,0 +1,64 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2013 - 2014, Federico Pastore
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE. 
+ */
+package org.jenkinsci.plugins.tibco.tra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TraOverlayTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file(String name, int idleDays) throws IOException {
+        File f = tmp.newFile(name);
+        f.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(idleDays));
+        return f;
+    }
+
+    @Test
+    public void idleOverlaysAreEvicted() throws IOException {
+        int idle = TraOverlay.IDLE_DAYS;
+        File used = file("amx_eclipse_ant-1.tra", 1);
+        File old = file("amx_eclipse_ant-2.tra", idle + 1);
+        File leftover = file("overlay123.tmp", idle + 1);
+        File asked = file("amx_eclipse_ant-3.tra", idle + 1);
+
+        TraOverlay.evictIdle(asked);
+        assertTrue(used.exists());
+        assertFalse(old.exists());
+        assertFalse(leftover.exists());
+        assertTrue(asked.exists());
+        assertEquals(2, tmp.getRoot().list().length);
+    }
+}